@@ -1,8 +1,13 @@
 package communication;
+/**
+ * Holds the last message sent by each agent. There is one PostBox per
+ * TWEnvironment (see TWEnvironment#getPostBox) so simulations running side
+ * by side never see each other's messages.
+ */
 public class PostBox {
-	private static Message MessageFromFirst;
-	private static Message MessageFromSecond;
-	public static void put(String fromAgent, Message m){
+	private Message MessageFromFirst;
+	private Message MessageFromSecond;
+	public synchronized void put(String fromAgent, Message m){
 		char c = fromAgent.charAt(0);
 		switch(c){
 		case 'F': MessageFromFirst = m;
@@ -11,7 +16,7 @@ public class PostBox {
 			break;
 		}
 	}
-	public static Message get(String toAgent){
+	public synchronized Message get(String toAgent){
 		char c = toAgent.charAt(0);
 		switch(c){
 		case 'F': return MessageFromSecond;
@@ -10,7 +10,7 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 
 import ga.Genome;
-import practicalreasoning.UtilityParams;
+import practicalreasoning.UtilityParam;
 
 import org.uncommons.watchmaker.framework.EvolutionObserver;
 import org.uncommons.watchmaker.framework.PopulationData;
@@ -20,6 +20,21 @@ import org.uncommons.watchmaker.framework.PopulationData;
  */
 public class EvolutionLogger implements EvolutionObserver<Genome>
 {
+	private GenomeFitnessEval fitnessEval;
+
+	public EvolutionLogger()
+	{
+		this(null);
+	}
+
+	/**
+	 * @param fitnessEval used to report the spread of the best candidate's scores over its replications
+	 */
+	public EvolutionLogger(GenomeFitnessEval fitnessEval)
+	{
+		this.fitnessEval = fitnessEval;
+	}
+
     public void populationUpdate(PopulationData<? extends Genome> data)
     {
     	int nG = data.getGenerationNumber();
@@ -29,12 +44,17 @@ public class EvolutionLogger implements EvolutionObserver<Genome>
         bestCand.printParams();
         double fit = data.getBestCandidateFitness();
         System.out.printf("BEST FITNESS %f:\n", fit);
+        FitnessStats bestStats = fitnessEval == null ? null : fitnessEval.getStats(bestCand);
+        if (bestStats != null)
+        	System.out.println("BEST FITNESS " + bestStats);
         double dev = data.getFitnessStandardDeviation();
         double mean = data.getMeanFitness();
         System.out.printf("Standard Deviation %f:\n", dev );
         System.out.printf("Mean FITNESS %f:\n", mean);
         long time = data.getElapsedTime();
         System.out.printf("Elapsed Time %d:\n", time);
+        if (fitnessEval != null)
+        	System.out.print(fitnessEval.getProfile().report());
         saveToFile(time, popSize, nG, bestCand, fit, dev, mean);
     }
     public void saveToFile(long time, int popSize, int nG, Genome best, double fitness, double dev, double mean){
@@ -43,7 +63,7 @@ public class EvolutionLogger implements EvolutionObserver<Genome>
     		//String out = new SimpleDateFormat("yyyy-MM-dd hh-mm-ss'.csv'").format(new Date());
     		PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(out, true)));
     		// generation number
-    		writer.println(time+","+popSize+","+nG+","+fitness+","+dev+","+mean+","+best.getDoubleVal(UtilityParams.BUFFER_RATIO)+","+best.getDoubleVal(UtilityParams.DECAY_MEMORY_AFTER)+","+best.getDoubleVal(UtilityParams.DEVIATION_HOLES)+","+best.getDoubleVal(UtilityParams.DEVIATION_MEM_DECAY)+","+best.getDoubleVal(UtilityParams.DEVIATION_NEIGHBOUR)+","+best.getDoubleVal(UtilityParams.DEVIATION_TILES)+","+best.getDoubleVal(UtilityParams.LENGTH_SNAPS)+","+best.getDoubleVal(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_X)+","+best.getDoubleVal(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_Y)+","+best.getDoubleVal(UtilityParams.PICKUP_ONE_TILES)+","+best.getDoubleVal(UtilityParams.PICKUP_TWO_TILES)+","+best.getDoubleVal(UtilityParams.PICKUP_ZERO_TILES)+","+best.getDoubleVal(UtilityParams.PUTDOWN_ONE_TILE)+","+best.getDoubleVal(UtilityParams.PUTDOWN_THREE_TILES)+","+best.getDoubleVal(UtilityParams.PUTDOWN_TWO_TILES)+","+best.getDoubleVal(UtilityParams.THRESHOLD_EXPLORE)+","+best.getDoubleVal(UtilityParams.UTILITY_STICKY)+","+best.getDoubleVal(UtilityParams.WEIGHT_COMBINATION));
+    		writer.println(time+","+popSize+","+nG+","+fitness+","+dev+","+mean+","+best.get(UtilityParam.BUFFER_RATIO)+","+best.get(UtilityParam.DECAY_MEMORY_AFTER)+","+best.get(UtilityParam.DEVIATION_HOLES)+","+best.get(UtilityParam.DEVIATION_MEM_DECAY)+","+best.get(UtilityParam.DEVIATION_NEIGHBOUR)+","+best.get(UtilityParam.DEVIATION_TILES)+","+best.get(UtilityParam.LENGTH_SNAPS)+","+best.get(UtilityParam.NEIGHBOUR_SEARCH_LIMIT_X)+","+best.get(UtilityParam.NEIGHBOUR_SEARCH_LIMIT_Y)+","+best.get(UtilityParam.PICKUP_ONE_TILES)+","+best.get(UtilityParam.PICKUP_TWO_TILES)+","+best.get(UtilityParam.PICKUP_ZERO_TILES)+","+best.get(UtilityParam.PUTDOWN_ONE_TILE)+","+best.get(UtilityParam.PUTDOWN_THREE_TILES)+","+best.get(UtilityParam.PUTDOWN_TWO_TILES)+","+best.get(UtilityParam.THRESHOLD_EXPLORE)+","+best.get(UtilityParam.UTILITY_STICKY)+","+best.get(UtilityParam.WEIGHT_COMBINATION));
         	writer.close();
     	}
     	catch(Exception e){
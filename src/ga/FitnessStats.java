@@ -0,0 +1,54 @@
+package ga;
+
+/**
+ * Running summary of the scores one Genome got over several simulation
+ * replications: mean, sample standard deviation and a 95% confidence
+ * interval on the mean (Student t).
+ *
+ * @author Prerna
+ */
+public class FitnessStats {
+	/** two sided 95% t quantiles for 1 to 30 degrees of freedom */
+	private static final double[] T_975 = {12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+		2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+		2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+
+	private int n;
+	private double mean;
+	private double m2; // sum of squared differences from the mean (Welford)
+	private boolean raced; // dropped early because it was clearly worse
+	private int failures; // replications whose simulation threw, not in the stats
+
+	public void add(double score){
+		n++;
+		double delta = score - mean;
+		mean += delta / n;
+		m2 += delta * (score - mean);
+	}
+	void addFailure(){failures++;}
+	public int getReplications(){return n;}
+	public int getFailures(){return failures;}
+	public double getMean(){return mean;}
+	public double getStdDev(){
+		return n > 1 ? Math.sqrt(m2 / (n - 1)) : 0;
+	}
+	/**
+	 * @return half width of the 95% confidence interval on the mean, infinite with fewer than 2 runs
+	 */
+	public double getHalfWidth(){
+		if(n < 2)
+			return Double.POSITIVE_INFINITY;
+		double t = n - 1 <= T_975.length ? T_975[n - 2] : 1.96;
+		return t * getStdDev() / Math.sqrt(n);
+	}
+	public double getLower(){return mean - getHalfWidth();}
+	public double getUpper(){return mean + getHalfWidth();}
+	public boolean isRaced(){return raced;}
+	void setRaced(boolean raced){this.raced = raced;}
+
+	@Override
+	public String toString() {
+		return String.format("mean %.2f sd %.2f 95%% CI [%.2f, %.2f] over %d runs%s%s", mean, getStdDev(),
+				getLower(), getUpper(), n, failures > 0 ? ", " + failures + " failed" : "", raced ? " (raced out)" : "");
+	}
+}
@@ -25,6 +25,7 @@ import org.uncommons.watchmaker.swing.evolutionmonitor.EvolutionMonitor;
 import org.uncommons.watchmaker.framework.EvolutionObserver;
 import org.uncommons.watchmaker.framework.TerminationCondition;
 import ga.EvolutionLogger;
+import tileworld.EnvironmentConfig;
 /**
  *
  * @author Prerna
@@ -36,7 +37,23 @@ public class GA {
      */
     private static int populationSize = 10;
     private static int eliteCount = 0; // fittest candidates copied to the next gen as is.
-    public static void main(String[] args) {
+    /**
+     * @param args optional: [workers] [replications] [racing] [key=value ...]
+     * number of simulations to run in parallel (default: number of cores),
+     * number of seeds each candidate is scored on (default 1) and
+     * true to stop running clearly worse candidates early (default false),
+     * followed by environment settings (see EnvironmentConfig#fromArgs, e.g. env=env3)
+     */
+    public static void main(String[] args) throws java.io.IOException {
+        List<String> positional = new ArrayList<String>();
+        for (String arg : args)
+            if (arg.indexOf('=') < 0)
+                positional.add(arg);
+        int workerThreads = positional.size() > 0 ? Integer.parseInt(positional.get(0)) : Runtime.getRuntime().availableProcessors();
+        int replications = positional.size() > 1 ? Integer.parseInt(positional.get(1)) : 1;
+        boolean racing = positional.size() > 2 && Boolean.parseBoolean(positional.get(2));
+        EnvironmentConfig config = EnvironmentConfig.fromArgs(args);
+        GenomeFitnessEval fitnessEval = new GenomeFitnessEval(workerThreads, replications, racing, config);
         Random rng = new MersenneTwisterRNG();
         List<EvolutionaryOperator<Genome>> operators = new ArrayList<EvolutionaryOperator<Genome>>(2);
         operators.add(new GenomeCrossover(6));
@@ -45,9 +62,9 @@ public class GA {
         //SelectionStrategy <Object> selectionStrategy = new SigmaScaling(new RouletteWheelSelection());
         SelectionStrategy <Object> selectionStrategy = new StochasticUniversalSampling();
         //SelectionStrategy <Object> selectionStrategy = new TournamentSelection();
-        GenerationalEvolutionEngine<Genome> engine = new GenerationalEvolutionEngine<Genome>(new GenomeFactory(), pipeline, new GenomeFitnessEval(), selectionStrategy, rng);
-        engine.addEvolutionObserver(new EvolutionLogger());
-        engine.setSingleThreaded(true);
+        GenerationalEvolutionEngine<Genome> engine = new GenerationalEvolutionEngine<Genome>(new GenomeFactory(), pipeline, fitnessEval, selectionStrategy, rng);
+        engine.addEvolutionObserver(new EvolutionLogger(fitnessEval));
+        engine.setSingleThreaded(true); // GenomeFitnessEval spreads each population over its own worker pool
         Genome winner = engine.evolve(populationSize, eliteCount, new ElapsedTime(7200000), new GenerationCount(20), new Stagnation(3000, true));
         System.out.println("\n\nWINNER");
         winner.printParams();
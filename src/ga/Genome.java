@@ -6,53 +6,59 @@
 
 package ga;
 import java.util.HashMap;
-import practicalreasoning.UtilityParams;
+import practicalreasoning.UtilityParam;
+import practicalreasoning.UtilityParamVector;
 /**
  *
  * @author Prerna
  */
 public class Genome {
-    public HashMap<String, Double> params = new HashMap<String, Double>();
+    public UtilityParamVector params = new UtilityParamVector();
     
-    //public static final String index0 = UtilityParams.BUFFER_RATIO;
-    public static final String index0 = UtilityParams.DEVIATION_TILES;
-    public static final String index1 = UtilityParams.DEVIATION_HOLES;
-    public static final String index2 = UtilityParams.DEVIATION_MEM_DECAY;
-    //public static final String index4 = UtilityParams.DEVIATION_NEIGHBOUR;
-    public static final String index3 = UtilityParams.WEIGHT_COMBINATION;
-    public static final String index4 = UtilityParams.PICKUP_ZERO_TILES;
-    public static final String index5 = UtilityParams.PICKUP_ONE_TILES;
-    public static final String index6 = UtilityParams.PICKUP_TWO_TILES;
-    public static final String index7 = UtilityParams.PUTDOWN_ONE_TILE;
-    public static final String index8 = UtilityParams.PUTDOWN_TWO_TILES;
-    public static final String index9 = UtilityParams.PUTDOWN_THREE_TILES;
-    public static final String index10 = UtilityParams.NEIGHBOUR_SEARCH_LIMIT_X;
-    public static final String index11 = UtilityParams.NEIGHBOUR_SEARCH_LIMIT_Y;
-    //public static final String index14 = UtilityParams.DECAY_MEMORY_AFTER;
-    public static final String index12 = UtilityParams.THRESHOLD_EXPLORE;
-    public static final String index13 = UtilityParams.LENGTH_SNAPS;
-    public static final String index14 = UtilityParams.UTILITY_STICKY;
+    /**
+     * The genes: the parameters crossover and mutation work on, by index
+     */
+    private static final UtilityParam[] GENES = {
+        //UtilityParam.BUFFER_RATIO,
+        UtilityParam.DEVIATION_TILES,
+        UtilityParam.DEVIATION_HOLES,
+        UtilityParam.DEVIATION_MEM_DECAY,
+        //UtilityParam.DEVIATION_NEIGHBOUR,
+        UtilityParam.WEIGHT_COMBINATION,
+        UtilityParam.PICKUP_ZERO_TILES,
+        UtilityParam.PICKUP_ONE_TILES,
+        UtilityParam.PICKUP_TWO_TILES,
+        UtilityParam.PUTDOWN_ONE_TILE,
+        UtilityParam.PUTDOWN_TWO_TILES,
+        UtilityParam.PUTDOWN_THREE_TILES,
+        UtilityParam.NEIGHBOUR_SEARCH_LIMIT_X,
+        UtilityParam.NEIGHBOUR_SEARCH_LIMIT_Y,
+        //UtilityParam.DECAY_MEMORY_AFTER,
+        UtilityParam.THRESHOLD_EXPLORE,
+        UtilityParam.LENGTH_SNAPS,
+        UtilityParam.UTILITY_STICKY,
+    };
     
     
     public Genome (){
-    	params.put(UtilityParams.BUFFER_RATIO, 0.2);
-		params.put(UtilityParams.DEVIATION_TILES, 0.3);
-		params.put(UtilityParams.DEVIATION_HOLES, 0.3);
-		params.put(UtilityParams.DEVIATION_MEM_DECAY, 15.0);
-		params.put(UtilityParams.DEVIATION_NEIGHBOUR, 0.3);
-		params.put(UtilityParams.WEIGHT_COMBINATION, 5.0);
-		params.put(UtilityParams.PICKUP_ZERO_TILES, 1.0);
-		params.put(UtilityParams.PICKUP_ONE_TILES, 0.66);
-		params.put(UtilityParams.PICKUP_TWO_TILES, 0.33);
-		params.put(UtilityParams.PUTDOWN_ONE_TILE, 0.33);
-		params.put(UtilityParams.PUTDOWN_TWO_TILES, 0.66);
-		params.put(UtilityParams.PUTDOWN_THREE_TILES, 1.0);
-		params.put(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_X, 3.0);
-		params.put(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_Y, 3.0);
-		params.put(UtilityParams.DECAY_MEMORY_AFTER, 50.0);
-		params.put(UtilityParams.THRESHOLD_EXPLORE, 10.0);
-		params.put(UtilityParams.LENGTH_SNAPS, 20.0);
-		params.put(UtilityParams.UTILITY_STICKY, 5.0);
+    	params.set(UtilityParam.BUFFER_RATIO, 0.2);
+		params.set(UtilityParam.DEVIATION_TILES, 0.3);
+		params.set(UtilityParam.DEVIATION_HOLES, 0.3);
+		params.set(UtilityParam.DEVIATION_MEM_DECAY, 15.0);
+		params.set(UtilityParam.DEVIATION_NEIGHBOUR, 0.3);
+		params.set(UtilityParam.WEIGHT_COMBINATION, 5.0);
+		params.set(UtilityParam.PICKUP_ZERO_TILES, 1.0);
+		params.set(UtilityParam.PICKUP_ONE_TILES, 0.66);
+		params.set(UtilityParam.PICKUP_TWO_TILES, 0.33);
+		params.set(UtilityParam.PUTDOWN_ONE_TILE, 0.33);
+		params.set(UtilityParam.PUTDOWN_TWO_TILES, 0.66);
+		params.set(UtilityParam.PUTDOWN_THREE_TILES, 1.0);
+		params.set(UtilityParam.NEIGHBOUR_SEARCH_LIMIT_X, 3.0);
+		params.set(UtilityParam.NEIGHBOUR_SEARCH_LIMIT_Y, 3.0);
+		params.set(UtilityParam.DECAY_MEMORY_AFTER, 50.0);
+		params.set(UtilityParam.THRESHOLD_EXPLORE, 10.0);
+		params.set(UtilityParam.LENGTH_SNAPS, 20.0);
+		params.set(UtilityParam.UTILITY_STICKY, 5.0);
     	/*
 		params.put(UtilityParams.DEVIATION_TILES, 0.3);
 		params.put(UtilityParams.DEVIATION_HOLES, 0.3);
@@ -78,73 +84,59 @@ public class Genome {
 		
     }
     public double getDoubleVal(String str){
-        return (double) params.get(str);
+        return params.get(UtilityParam.fromKey(str));
     }
     public void setDoubleVal(String str, double newVal){
-        params.put(str, newVal);
+        params.set(UtilityParam.fromKey(str), newVal);
+    }
+    public double get(UtilityParam param){
+        return params.get(param);
+    }
+    public void set(UtilityParam param, double newVal){
+        params.set(param, newVal);
     }
     public int getNumParams(){
         return 12;
     }
+    /**
+     * @return number of genes, getNumParams of which take part in crossover
+     */
+    public static int getNumGenes(){
+        return GENES.length;
+    }
+    /**
+     * @return the parameters as a map, for the environment's agents
+     */
     public HashMap<String, Double> getAllParams(){
+        return params.toMap();
+    }
+    public UtilityParamVector getParams(){
         return params;
     }
     public void clone(Genome g){
-        //params = (HashMap) g.getAllParams().clone(); // this gives a shallow copy
-        params.put(UtilityParams.BUFFER_RATIO, g.getDoubleVal(UtilityParams.BUFFER_RATIO)); // 0-1 (practically, should not be above 0.5)
-        params.put(UtilityParams.DEVIATION_TILES, g.getDoubleVal(UtilityParams.DEVIATION_TILES)); // 0-1
-        params.put(UtilityParams.DEVIATION_HOLES, g.getDoubleVal(UtilityParams.DEVIATION_HOLES)); // 0-1
-        params.put(UtilityParams.DEVIATION_MEM_DECAY, g.getDoubleVal(UtilityParams.DEVIATION_MEM_DECAY)); // 1-50 or 100
-        params.put(UtilityParams.DEVIATION_NEIGHBOUR, g.getDoubleVal(UtilityParams.DEVIATION_NEIGHBOUR)); // 0-1
-        params.put(UtilityParams.WEIGHT_COMBINATION, g.getDoubleVal(UtilityParams.WEIGHT_COMBINATION));
-        params.put(UtilityParams.PICKUP_ZERO_TILES, g.getDoubleVal(UtilityParams.PICKUP_ZERO_TILES)); // 0-1
-        params.put(UtilityParams.PICKUP_ONE_TILES, g.getDoubleVal(UtilityParams.PICKUP_ONE_TILES)); // 0-1
-        params.put(UtilityParams.PICKUP_TWO_TILES, g.getDoubleVal(UtilityParams.PICKUP_TWO_TILES)); // 0-1
-        params.put(UtilityParams.PUTDOWN_ONE_TILE, g.getDoubleVal(UtilityParams.PUTDOWN_ONE_TILE)); // 0-1
-        params.put(UtilityParams.PUTDOWN_TWO_TILES, g.getDoubleVal(UtilityParams.PUTDOWN_TWO_TILES)); // 0-1
-        params.put(UtilityParams.PUTDOWN_THREE_TILES, g.getDoubleVal(UtilityParams.PUTDOWN_THREE_TILES)); // 0-1
-        params.put(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_X, g.getDoubleVal(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_X)); // 1 to 20 or env width (int)
-        params.put(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_Y, g.getDoubleVal(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_Y)); // 1 to 20 or env height (int)
-        params.put(UtilityParams.DECAY_MEMORY_AFTER, g.getDoubleVal(UtilityParams.DECAY_MEMORY_AFTER)); // 1 to 20 or env width (int)
-        params.put(UtilityParams.THRESHOLD_EXPLORE, g.getDoubleVal(UtilityParams.THRESHOLD_EXPLORE)); // 1 to 20 or env height (int)
-        params.put(UtilityParams.LENGTH_SNAPS, g.getDoubleVal(UtilityParams.LENGTH_SNAPS));
-        params.put(UtilityParams.UTILITY_STICKY, g.getDoubleVal(UtilityParams.UTILITY_STICKY));
+        params.copyFrom(g.params);
+    }
+    /**
+     * @return the i-th gene
+     */
+    public static final UtilityParam getParam(int i){
+        return GENES[i];
     }
     public static final String getParamStr(int i){
-        String paramStr="";
-        switch(i){
-            case 0: paramStr=index0; break;
-            case 1: paramStr=index1; break;
-            case 2: paramStr=index2; break;
-            case 3: paramStr=index3; break;
-            case 4: paramStr=index4; break;
-            case 5: paramStr=index5; break;
-            case 6: paramStr=index6; break;
-            case 7: paramStr=index7; break;
-            case 8: paramStr=index8; break;
-            case 9: paramStr=index9; break;
-            case 10: paramStr=index10; break;
-            case 11: paramStr=index11; break;
-            case 12: paramStr=index12; break;
-            case 13: paramStr=index13; break;
-            case 14: paramStr=index14; break;
-            //case 15: paramStr=index15; break;
-            default: paramStr=""; break;
-        }
-        return paramStr;
+        return i >= 0 && i < GENES.length ? GENES[i].key() : "";
     }
     public void printParams(){
         for(int i=0; i<getNumParams(); i++){
-            String paramStr = getParamStr(i);
-            double paramVal = getDoubleVal(paramStr);
+            UtilityParam param = getParam(i);
+            double paramVal = get(param);
             //System.out.println("WINNER");
-            System.out.println(paramStr+" : "+paramVal);
+            System.out.println(param.key()+" : "+paramVal);
         }
         //System.out.println(UtilityParams.THRESHOLD_EXPLORE+" : "+getDoubleVal(UtilityParams.THRESHOLD_EXPLORE));
-        System.out.println(UtilityParams.BUFFER_RATIO+" : "+getDoubleVal(UtilityParams.BUFFER_RATIO));
-        System.out.println(UtilityParams.DEVIATION_NEIGHBOUR+" : "+getDoubleVal(UtilityParams.DEVIATION_NEIGHBOUR));
+        System.out.println(UtilityParam.BUFFER_RATIO.key()+" : "+get(UtilityParam.BUFFER_RATIO));
+        System.out.println(UtilityParam.DEVIATION_NEIGHBOUR.key()+" : "+get(UtilityParam.DEVIATION_NEIGHBOUR));
         //System.out.println(UtilityParams.WEIGHT_COMBINATION+" : "+getDoubleVal(UtilityParams.WEIGHT_COMBINATION));
-        System.out.println(UtilityParams.DECAY_MEMORY_AFTER+" : "+getDoubleVal(UtilityParams.DECAY_MEMORY_AFTER));
+        System.out.println(UtilityParam.DECAY_MEMORY_AFTER.key()+" : "+get(UtilityParam.DECAY_MEMORY_AFTER));
         //System.out.println(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_X+" : "+getDoubleVal(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_X));
         //System.out.println(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_Y+" : "+getDoubleVal(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_Y));
     }
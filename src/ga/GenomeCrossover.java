@@ -9,6 +9,7 @@ import java.util.*;
 import org.uncommons.watchmaker.framework.operators.AbstractCrossover;
 import org.uncommons.maths.number.NumberGenerator;
 import ga.Genome;
+import practicalreasoning.UtilityParam;
 
 /**
  *
@@ -45,10 +46,10 @@ public class GenomeCrossover extends AbstractCrossover<Genome>{
         for (int i = 0; i < numberOfCrossoverPoints; i++)
         {
             int crossoverIndex = rng.nextInt(parent1.getNumParams()); // b/w 0 and length-1
-            String crossoverParam = Genome.getParamStr(crossoverIndex);
-            double temp = offspring1.getDoubleVal(crossoverParam);
-            offspring1.setDoubleVal(crossoverParam, offspring2.getDoubleVal(crossoverParam));
-            offspring2.setDoubleVal(crossoverParam, temp);
+            UtilityParam crossoverParam = Genome.getParam(crossoverIndex);
+            double temp = offspring1.get(crossoverParam);
+            offspring1.set(crossoverParam, offspring2.get(crossoverParam));
+            offspring2.set(crossoverParam, temp);
         }
         List<Genome> result = new ArrayList<Genome>(2);
         result.add(offspring1);
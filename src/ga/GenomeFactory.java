@@ -9,7 +9,7 @@
 package ga;
 import java.util.Random; // even the uncommons Math random number generators extend java.util.Random
 import org.uncommons.watchmaker.framework.factories.AbstractCandidateFactory;
-import practicalreasoning.UtilityParams;
+import practicalreasoning.UtilityParam;
 /**
  *
  * @author Prerna
@@ -32,24 +32,24 @@ public class GenomeFactory extends AbstractCandidateFactory <Genome> {
         }
     }    
     private Genome randGenome(Genome g, Random rng){
-        //g.setDoubleVal(UtilityParams.BUFFER_RATIO, 0 + (1 - 0) * rng.nextDouble());
-        g.setDoubleVal(UtilityParams.DEVIATION_TILES, 0 + (1 - 0) * rng.nextDouble());
-        g.setDoubleVal(UtilityParams.DEVIATION_HOLES, 0 + (1 - 0) * rng.nextDouble());
-        g.setDoubleVal(UtilityParams.DEVIATION_MEM_DECAY, (double)(1+rng.nextInt(101-1))); //0+1 to 99+1 = 1 to 100 generated 
-        //g.setDoubleVal(UtilityParams.DEVIATION_NEIGHBOUR, 0 + (1 - 0) * rng.nextDouble());
-        //g.setDoubleVal(UtilityParams.WEIGHT_COMBINATION, (double)(1+rng.nextInt(21-1)));
-        g.setDoubleVal(UtilityParams.PICKUP_ZERO_TILES, 0 + (1 - 0) * rng.nextDouble());
-        g.setDoubleVal(UtilityParams.PICKUP_ONE_TILES, 0 + (1 - 0) * rng.nextDouble());
-        g.setDoubleVal(UtilityParams.PICKUP_TWO_TILES, 0 + (1 - 0) * rng.nextDouble());
-        g.setDoubleVal(UtilityParams.PUTDOWN_ONE_TILE, 0 + (1 - 0) * rng.nextDouble());
-        g.setDoubleVal(UtilityParams.PUTDOWN_TWO_TILES, 0 + (1 - 0) * rng.nextDouble());
-        g.setDoubleVal(UtilityParams.PUTDOWN_THREE_TILES, 0 + (1 - 0) * rng.nextDouble());
-        //g.setDoubleVal(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_X, (double)(1+rng.nextInt(21-1))); //0+1 to 19+1 = 1 to 20 generated
-        //g.setDoubleVal(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_Y, (double)(1+rng.nextInt(21-1))); //0+1 to 19+1 = 1 to 20 generated
-        //g.setDoubleVal(UtilityParams.DECAY_MEMORY_AFTER, (double)(1+rng.nextInt(501-1)));
-        g.setDoubleVal(UtilityParams.THRESHOLD_EXPLORE, (double)(0+rng.nextInt(51)));  // 0 to 100
-        g.setDoubleVal(UtilityParams.LENGTH_SNAPS, (double)(5+rng.nextInt(96))); // 5 to 100
-        g.setDoubleVal(UtilityParams.UTILITY_STICKY, (double)(5+rng.nextInt(16))); // 5 to 20
+        //g.set(UtilityParam.BUFFER_RATIO, 0 + (1 - 0) * rng.nextDouble());
+        g.set(UtilityParam.DEVIATION_TILES, 0 + (1 - 0) * rng.nextDouble());
+        g.set(UtilityParam.DEVIATION_HOLES, 0 + (1 - 0) * rng.nextDouble());
+        g.set(UtilityParam.DEVIATION_MEM_DECAY, (double)(1+rng.nextInt(101-1))); //0+1 to 99+1 = 1 to 100 generated 
+        //g.set(UtilityParam.DEVIATION_NEIGHBOUR, 0 + (1 - 0) * rng.nextDouble());
+        //g.set(UtilityParam.WEIGHT_COMBINATION, (double)(1+rng.nextInt(21-1)));
+        g.set(UtilityParam.PICKUP_ZERO_TILES, 0 + (1 - 0) * rng.nextDouble());
+        g.set(UtilityParam.PICKUP_ONE_TILES, 0 + (1 - 0) * rng.nextDouble());
+        g.set(UtilityParam.PICKUP_TWO_TILES, 0 + (1 - 0) * rng.nextDouble());
+        g.set(UtilityParam.PUTDOWN_ONE_TILE, 0 + (1 - 0) * rng.nextDouble());
+        g.set(UtilityParam.PUTDOWN_TWO_TILES, 0 + (1 - 0) * rng.nextDouble());
+        g.set(UtilityParam.PUTDOWN_THREE_TILES, 0 + (1 - 0) * rng.nextDouble());
+        //g.set(UtilityParam.NEIGHBOUR_SEARCH_LIMIT_X, (double)(1+rng.nextInt(21-1))); //0+1 to 19+1 = 1 to 20 generated
+        //g.set(UtilityParam.NEIGHBOUR_SEARCH_LIMIT_Y, (double)(1+rng.nextInt(21-1))); //0+1 to 19+1 = 1 to 20 generated
+        //g.set(UtilityParam.DECAY_MEMORY_AFTER, (double)(1+rng.nextInt(501-1)));
+        g.set(UtilityParam.THRESHOLD_EXPLORE, (double)(0+rng.nextInt(51)));  // 0 to 100
+        g.set(UtilityParam.LENGTH_SNAPS, (double)(5+rng.nextInt(96))); // 5 to 100
+        g.set(UtilityParam.UTILITY_STICKY, (double)(5+rng.nextInt(16))); // 5 to 20
         return g;
     }
 }
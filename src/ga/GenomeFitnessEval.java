@@ -9,30 +9,236 @@ import org.uncommons.watchmaker.framework.FitnessEvaluator;
 import org.uncommons.maths.random.MersenneTwisterRNG;
 
 import sim.engine.SimState;
+import tileworld.EnvironmentConfig;
 import tileworld.Parameters;
 import tileworld.environment.TWEnvironment;
+import tileworld.environment.TWProfiler;
 import ga.Genome;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  *
  * @author Prerna
+ * 
+ * The first getFitness call for a population evaluates the whole population
+ * and caches the results; later calls just look them up. This works with
+ * the engine in single threaded mode (it asks for fitness candidate by
+ * candidate, in population order) and lets us choose the worker pool size,
+ * which watchmaker's own multi-threaded mode does not.
+ * 
+ * Each candidate can be run over several seeds. The seeds are the same for
+ * every candidate in every generation (common random numbers), so candidates
+ * are compared on the same maps and the differences between them are much
+ * less noisy than the scores themselves. The fitness is the mean score.
+ * 
+ * A replication whose simulation throws is reported on System.err and left
+ * out of the candidate's stats, so it neither drags the mean down nor
+ * widens the confidence interval.
+ * 
+ * With racing on, replications are run round by round and after minRounds
+ * any candidate whose 95% confidence interval lies entirely below the best
+ * candidate's is not run on the remaining seeds.
  */
 public class GenomeFitnessEval implements FitnessEvaluator <Genome> {
 private HashMap<String, Double> weightPoints = new HashMap<String, Double>();
+	private final long[] seeds;
+	private final boolean racing;
+	private final int minRounds;
+	private final EnvironmentConfig config;
+	private ExecutorService workers;
+	private List<? extends Genome> evaluatedPopulation;
+	private IdentityHashMap<Genome, FitnessStats> results = new IdentityHashMap<Genome, FitnessStats>();
+	/** Phase timings and counters summed over the runs of the last evaluated population */
+	private final TWProfiler profile = new TWProfiler();
 
     public GenomeFitnessEval () //function needs to be called in the start, as the env is dynamic
     {
+    	this(1);
+    }
+
+    /**
+     * Single seed (Parameters.seed), as before.
+     * 
+     * @param workerThreads number of simulations to run at once, 1 runs them on the caller's thread
+     */
+    public GenomeFitnessEval (int workerThreads)
+    {
+    	this(workerThreads, 1, false);
+    }
+
+    /**
+     * @param workerThreads number of simulations to run at once, 1 runs them on the caller's thread
+     * @param replications number of seeds each candidate is run with, Parameters.seed, Parameters.seed + 1, ...
+     * @param racing stop running candidates that are clearly worse than the best one
+     */
+    public GenomeFitnessEval (int workerThreads, int replications, boolean racing)
+    {
+    	this(workerThreads, replications, racing, EnvironmentConfig.DEFAULT);
+    }
+
+    /**
+     * As above, evolving for the given environment instead of the default one.
+     */
+    public GenomeFitnessEval (int workerThreads, int replications, boolean racing, EnvironmentConfig config)
+    {
+    	this.config = config;
+    	this.seeds = new long[replications];
+    	for(int i = 0; i < replications; i++)
+    		seeds[i] = Parameters.seed + i;
+    	this.racing = racing;
+    	this.minRounds = Math.min(3, replications);
+    	if(workerThreads > 1)
+    		workers = Executors.newFixedThreadPool(workerThreads, new ThreadFactory() {
+    			public Thread newThread(Runnable r) {
+    				Thread t = new Thread(r, "GenomeFitnessEval");
+    				t.setDaemon(true);
+    				return t;
+    			}
+    		});
     }
 
     @Override
-    public double getFitness(Genome candidate, List<? extends Genome> population) 
+    public synchronized double getFitness(Genome candidate, List<? extends Genome> population) 
+    {
+    	if(population != evaluatedPopulation)
+    	{
+    		evaluatedPopulation = population;
+    		evaluate(population);
+    	}
+    	FitnessStats stats = results.get(candidate);
+    	if(stats == null) //not part of the population we were given
+    	{
+    		evaluate(Collections.singletonList(candidate));
+    		stats = results.get(candidate);
+    	}
+    	return stats.getMean();
+    }
+
+    /**
+     * @return the profiles of every run of the last evaluated population, summed
+     */
+    public TWProfiler getProfile()
+    {
+    	return profile;
+    }
+
+    /**
+     * @return the replication summary of a candidate from the last evaluated population, null if unknown
+     */
+    public synchronized FitnessStats getStats(Genome candidate)
+    {
+    	return results.get(candidate);
+    }
+
+    private void evaluate(List<? extends Genome> population)
+    {
+    	if(population == evaluatedPopulation)
+    	{
+    		results.clear();
+    		profile.clear();
+    	}
+    	ArrayList<Genome> alive = new ArrayList<Genome>();
+    	for(Genome g: population)
+    	{
+    		if(!results.containsKey(g))
+    		{
+    			results.put(g, new FitnessStats());
+    			alive.add(g);
+    		}
+    	}
+    	for(int round = 0; round < seeds.length && alive.size() > 0; round++)
+    	{
+    		double[] scores = runAll(alive, seeds[round]);
+    		for(int i = 0; i < alive.size(); i++)
+    		{
+    			if(Double.isNaN(scores[i])) //failed, left out rather than scored 0
+    				results.get(alive.get(i)).addFailure();
+    			else
+    				results.get(alive.get(i)).add(scores[i]);
+    		}
+    		if(racing && round + 1 >= minRounds && round + 1 < seeds.length)
+    			race(alive);
+    	}
+    }
+
+    /**
+     * Drops every candidate whose upper confidence bound is below the best lower bound.
+     */
+    private void race(ArrayList<Genome> alive)
+    {
+    	double bestLower = Double.NEGATIVE_INFINITY;
+    	for(Genome g: alive)
+    		bestLower = Math.max(bestLower, results.get(g).getLower());
+    	for(Iterator<Genome> it = alive.iterator(); it.hasNext();)
+    	{
+    		FitnessStats stats = results.get(it.next());
+    		if(stats.getUpper() < bestLower)
+    		{
+    			stats.setRaced(true);
+    			it.remove();
+    		}
+    	}
+    }
+
+    /**
+     * Runs every candidate with the given seed, on the worker pool if there is one.
+     * A run that failed scores NaN.
+     */
+    private double[] runAll(List<Genome> candidates, final long seed)
+    {
+    	double[] scores = new double[candidates.size()];
+    	if(workers == null)
+    	{
+    		for(int i = 0; i < scores.length; i++)
+    			scores[i] = simulate(candidates.get(i), seed);
+    		return scores;
+    	}
+    	ArrayList<Future<Double>> futures = new ArrayList<Future<Double>>(scores.length);
+    	for(final Genome g: candidates)
+    	{
+    		futures.add(workers.submit(new Callable<Double>() {
+    			public Double call() {
+    				return simulate(g, seed);
+    			}
+    		}));
+    	}
+    	for(int i = 0; i < scores.length; i++)
+    	{
+    		try {
+    			scores[i] = futures.get(i).get();
+    		} catch (InterruptedException e) {
+    			Thread.currentThread().interrupt();
+    			scores[i] = Double.NaN;
+    		} catch (ExecutionException e) {
+    			System.err.println("Simulation with seed " + seed + " failed:");
+    			e.getCause().printStackTrace();
+    			scores[i] = Double.NaN;
+    		}
+    	}
+    	return scores;
+    }
+
+    /**
+     * Runs one headless simulation with both agents using the candidate's parameters.
+     * Each run has its own environment, random generator and post box, so
+     * several can run at once.
+     *
+     * @return the score, NaN if the simulation threw
+     */
+    private double simulate(Genome candidate, long seed)
     {
     	ArrayList<HashMap<String, Double>> parameters = new ArrayList<HashMap<String,Double>>();
-    	parameters.add(candidate.params);
-    	parameters.add(candidate.params);
-    	TWEnvironment tw = new TWEnvironment(parameters);
+    	HashMap<String, Double> params = candidate.getAllParams();
+    	parameters.add(params);
+    	parameters.add(params);
+    	TWEnvironment tw = new TWEnvironment(seed, config, parameters);
         tw.start();
       
         long steps = 0;	
@@ -45,12 +251,14 @@ private HashMap<String, Double> weightPoints = new HashMap<String, Double>();
                 }
         	}
         	catch(Exception e){
-        		System.out.println("EXCEPTION!");
-        		return 0;
+        		System.err.println("Simulation with seed " + seed + " failed after " + steps + " steps:");
+        		e.printStackTrace();
+        		return Double.NaN;
         	}
             steps++;
         }
         tw.finish();
+        profile.add(tw.getProfiler());
         System.out.println("RUN"+tw.getScore());
         //return (tw.getScore()*1.0) / tw.getTotalHolesCreated();
         return (tw.getScore()*1.0);
@@ -62,4 +270,4 @@ private HashMap<String, Double> weightPoints = new HashMap<String, Double>();
     return true;
     }
     
-}
\ No newline at end of file
+}
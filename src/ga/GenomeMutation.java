@@ -7,14 +7,15 @@
 package ga;
 import java.util.*;
 import org.uncommons.watchmaker.framework.EvolutionaryOperator;
-import practicalreasoning.UtilityParams;
+import practicalreasoning.UtilityParam;
 /**
  *
  * @author Prerna
  */
 public class GenomeMutation implements EvolutionaryOperator<Genome> {
-    private HashMap<String, Double> upperrange = new HashMap<String, Double>();
-    public HashMap<String, Double> lowerrange = new HashMap<String, Double>();
+    /** Range of each gene, by UtilityParam ordinal */
+    private double[] upperrange = new double[UtilityParam.values().length];
+    public double[] lowerrange = new double[UtilityParam.values().length];
     //private double probability=0.02;
     private double probability=0.1;
     private boolean mutation=false;
@@ -23,45 +24,45 @@ public class GenomeMutation implements EvolutionaryOperator<Genome> {
     private int numOfParams;
     
     public GenomeMutation(){
-        //upperrange.put(UtilityParams.BUFFER_RATIO, 0.4); // 0-1 (practically, should not be above 0.5)
-        upperrange.put(UtilityParams.DEVIATION_TILES, 1.0); // 0-1
-        upperrange.put(UtilityParams.DEVIATION_HOLES, 1.0); // 0-1
-        upperrange.put(UtilityParams.DEVIATION_MEM_DECAY, 100.0); // 1-50 or 100
-        //upperrange.put(UtilityParams.DEVIATION_NEIGHBOUR, 1.0); // 0-1
-        upperrange.put(UtilityParams.WEIGHT_COMBINATION, 20.0); // 0-1
-        upperrange.put(UtilityParams.PICKUP_ZERO_TILES, 1.0); // 0-1
-        upperrange.put(UtilityParams.PICKUP_ONE_TILES, 1.0); // 0-1
-        upperrange.put(UtilityParams.PICKUP_TWO_TILES, 1.0); // 0-1
-        upperrange.put(UtilityParams.PUTDOWN_ONE_TILE, 1.0); // 0-1
-        upperrange.put(UtilityParams.PUTDOWN_TWO_TILES, 1.0); // 0-1
-        upperrange.put(UtilityParams.PUTDOWN_THREE_TILES, 1.0); // 0-1
-        upperrange.put(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_X, 5.0); // 1 to 20 or env width (int)
-        upperrange.put(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_Y, 5.0); // 1 to 20 or env height (int)
-        //upperrange.put(UtilityParams.DECAY_MEMORY_AFTER, 500.0); // 500 for now, else 5000, depends on time steps
-        upperrange.put(UtilityParams.THRESHOLD_EXPLORE, 50.0); 
-        upperrange.put(UtilityParams.LENGTH_SNAPS, 100.0);
-        upperrange.put(UtilityParams.UTILITY_STICKY, 20.0);
+        //upperrange[UtilityParam.BUFFER_RATIO.ordinal()] = 0.4; // 0-1 (practically, should not be above 0.5)
+        upperrange[UtilityParam.DEVIATION_TILES.ordinal()] = 1.0; // 0-1
+        upperrange[UtilityParam.DEVIATION_HOLES.ordinal()] = 1.0; // 0-1
+        upperrange[UtilityParam.DEVIATION_MEM_DECAY.ordinal()] = 100.0; // 1-50 or 100
+        //upperrange[UtilityParam.DEVIATION_NEIGHBOUR.ordinal()] = 1.0; // 0-1
+        upperrange[UtilityParam.WEIGHT_COMBINATION.ordinal()] = 20.0; // 0-1
+        upperrange[UtilityParam.PICKUP_ZERO_TILES.ordinal()] = 1.0; // 0-1
+        upperrange[UtilityParam.PICKUP_ONE_TILES.ordinal()] = 1.0; // 0-1
+        upperrange[UtilityParam.PICKUP_TWO_TILES.ordinal()] = 1.0; // 0-1
+        upperrange[UtilityParam.PUTDOWN_ONE_TILE.ordinal()] = 1.0; // 0-1
+        upperrange[UtilityParam.PUTDOWN_TWO_TILES.ordinal()] = 1.0; // 0-1
+        upperrange[UtilityParam.PUTDOWN_THREE_TILES.ordinal()] = 1.0; // 0-1
+        upperrange[UtilityParam.NEIGHBOUR_SEARCH_LIMIT_X.ordinal()] = 5.0; // 1 to 20 or env width (int)
+        upperrange[UtilityParam.NEIGHBOUR_SEARCH_LIMIT_Y.ordinal()] = 5.0; // 1 to 20 or env height (int)
+        //upperrange[UtilityParam.DECAY_MEMORY_AFTER.ordinal()] = 500.0; // 500 for now, else 5000, depends on time steps
+        upperrange[UtilityParam.THRESHOLD_EXPLORE.ordinal()] = 50.0; 
+        upperrange[UtilityParam.LENGTH_SNAPS.ordinal()] = 100.0;
+        upperrange[UtilityParam.UTILITY_STICKY.ordinal()] = 20.0;
         
-        //lowerrange.put(UtilityParams.BUFFER_RATIO, 0.0); // 0-1 (practically, should not be above 0.5)
-        lowerrange.put(UtilityParams.DEVIATION_TILES, 0.0); // 0-1
-        lowerrange.put(UtilityParams.DEVIATION_HOLES, 0.0); // 0-1
-        lowerrange.put(UtilityParams.DEVIATION_MEM_DECAY, 0.0); // 1-50 or 100
-        //lowerrange.put(UtilityParams.DEVIATION_NEIGHBOUR, 0.0); // 0-1
-        lowerrange.put(UtilityParams.WEIGHT_COMBINATION, 0.0); // 0-1
-        lowerrange.put(UtilityParams.PICKUP_ZERO_TILES, 0.0); // 0-1
-        lowerrange.put(UtilityParams.PICKUP_ONE_TILES, 0.0); // 0-1
-        lowerrange.put(UtilityParams.PICKUP_TWO_TILES, 0.0); // 0-1
-        lowerrange.put(UtilityParams.PUTDOWN_ONE_TILE, 0.0); // 0-1
-        lowerrange.put(UtilityParams.PUTDOWN_TWO_TILES, 0.0); // 0-1
-        lowerrange.put(UtilityParams.PUTDOWN_THREE_TILES, 0.0); // 0-1
-        lowerrange.put(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_X, 1.0); // 1 to 20 or env width (int)
-        lowerrange.put(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_Y, 1.0); // 1 to 20 or env height (int)
-        //lowerrange.put(UtilityParams.DECAY_MEMORY_AFTER, 1.0); // 500 for now, else 5000, depends on time steps
-        lowerrange.put(UtilityParams.THRESHOLD_EXPLORE, 0.0); 
-        lowerrange.put(UtilityParams.LENGTH_SNAPS, 5.0); 
-        lowerrange.put(UtilityParams.UTILITY_STICKY, 5.0); 
+        //lowerrange[UtilityParam.BUFFER_RATIO.ordinal()] = 0.0; // 0-1 (practically, should not be above 0.5)
+        lowerrange[UtilityParam.DEVIATION_TILES.ordinal()] = 0.0; // 0-1
+        lowerrange[UtilityParam.DEVIATION_HOLES.ordinal()] = 0.0; // 0-1
+        lowerrange[UtilityParam.DEVIATION_MEM_DECAY.ordinal()] = 0.0; // 1-50 or 100
+        //lowerrange[UtilityParam.DEVIATION_NEIGHBOUR.ordinal()] = 0.0; // 0-1
+        lowerrange[UtilityParam.WEIGHT_COMBINATION.ordinal()] = 0.0; // 0-1
+        lowerrange[UtilityParam.PICKUP_ZERO_TILES.ordinal()] = 0.0; // 0-1
+        lowerrange[UtilityParam.PICKUP_ONE_TILES.ordinal()] = 0.0; // 0-1
+        lowerrange[UtilityParam.PICKUP_TWO_TILES.ordinal()] = 0.0; // 0-1
+        lowerrange[UtilityParam.PUTDOWN_ONE_TILE.ordinal()] = 0.0; // 0-1
+        lowerrange[UtilityParam.PUTDOWN_TWO_TILES.ordinal()] = 0.0; // 0-1
+        lowerrange[UtilityParam.PUTDOWN_THREE_TILES.ordinal()] = 0.0; // 0-1
+        lowerrange[UtilityParam.NEIGHBOUR_SEARCH_LIMIT_X.ordinal()] = 1.0; // 1 to 20 or env width (int)
+        lowerrange[UtilityParam.NEIGHBOUR_SEARCH_LIMIT_Y.ordinal()] = 1.0; // 1 to 20 or env height (int)
+        //lowerrange[UtilityParam.DECAY_MEMORY_AFTER.ordinal()] = 1.0; // 500 for now, else 5000, depends on time steps
+        lowerrange[UtilityParam.THRESHOLD_EXPLORE.ordinal()] = 0.0; 
+        lowerrange[UtilityParam.LENGTH_SNAPS.ordinal()] = 5.0; 
+        lowerrange[UtilityParam.UTILITY_STICKY.ordinal()] = 5.0; 
         
-        numOfParams = upperrange.size();
+        numOfParams = Genome.getNumGenes();
     }
     
     @Override
@@ -80,14 +81,14 @@ public class GenomeMutation implements EvolutionaryOperator<Genome> {
     private Genome mutate(Genome g, Random rng){
         for(int c=0; c<mutationCount; c++){ // mutate 2 params (can mutate same twice too)
             int randI = rng.nextInt(numOfParams);
-            String paramToMutate = Genome.getParamStr(randI);
-            double currVal = g.getDoubleVal(paramToMutate);
-            double upperVal = upperrange.get(paramToMutate);
+            UtilityParam paramToMutate = Genome.getParam(randI);
+            double currVal = g.get(paramToMutate);
+            double upperVal = upperrange[paramToMutate.ordinal()];
             //System.out.println("Mutating cand-1 "+paramToMutate);
-            double lowerVal = lowerrange.get(paramToMutate);
+            double lowerVal = lowerrange[paramToMutate.ordinal()];
             //System.out.println("Mutating cand-2");
             double newVal = generateNewVal(currVal, upperVal, lowerVal, rng);
-            g.setDoubleVal(paramToMutate, newVal);
+            g.set(paramToMutate, newVal);
         }
         return g;
     } 
@@ -3,22 +3,49 @@ package practicalreasoning;
 import java.util.Iterator;
 import java.util.LinkedList;
 
+import tileworld.agent.TWAction;
 import tileworld.agent.TWThought;
+import tileworld.environment.TWDirection;
+import tileworld.planners.TWPath;
 
 public class TWPlan implements Iterator<TWThought>{
+	/** One shared MOVE thought per direction, thoughts are immutable */
+	private static final TWThought[] MOVES = new TWThought[TWDirection.values().length];
+	static
+	{
+		for(TWDirection d: TWDirection.values())
+			MOVES[d.ordinal()] = new TWThought(TWAction.MOVE, d);
+	}
+
 	private LinkedList<TWThought> plan;
+	/** Path to walk, read by index so the path itself is left as it was */
+	private TWPath path;
+	private int next;
+
 	public TWPlan(LinkedList<TWThought> thoughts)
 	{
 		this.plan = thoughts;
 	}
 
+	/**
+	 * A plan of moves along path, nothing is allocated per step
+	 */
+	public TWPlan(TWPath path)
+	{
+		this.path = path;
+	}
+
 	@Override
 	public boolean hasNext() {
+		if(path != null)
+			return next < path.size();
 		return plan.size() > 0;
 	}
 
 	@Override
 	public TWThought next() {
+		if(path != null)
+			return MOVES[path.getDirection(next++).ordinal()];
 		return plan.pop();
 	}
 
@@ -30,6 +57,8 @@ public class TWPlan implements Iterator<TWThought>{
 	
 	public TWThought peek()
 	{
+		if(path != null)
+			return next < path.size() ? MOVES[path.getDirection(next).ordinal()] : null;
 		return plan.peek();
 	}
 
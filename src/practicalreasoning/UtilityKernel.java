@@ -0,0 +1,129 @@
+package practicalreasoning;
+
+/**
+ * UtilityKernel
+ *
+ * Description:
+ *
+ * The arithmetic of UtilityAgent2's tile and hole utilities. The parameters
+ * are read into fields once per step (resolve) and the Gaussians are
+ * tabulated over the values their arguments can take: Manhattan
+ * distances 0..maxDistance and whole step ages. Table entries are computed
+ * with the same expression as UtilityAgent2.normalDistribution, so tile,
+ * hole and neighbour terms come out exactly as before.
+ *
+ * Neighbour utilities are combined in atanh space. combineUtilities maps
+ * both utilities through atanh((u / 100)^d), adds them and maps back, so
+ * folding n neighbours into a utility one at a time is the same as adding
+ * all their atanh values and mapping back once: n + 1 pow/log pairs and a
+ * single tanh instead of n tanh, 2n atanh and 3n pow. The result agrees
+ * with the step by step fold up to rounding.
+ */
+public class UtilityKernel {
+
+	/** Ages below this are looked up, older ones computed */
+	private static final int AGE_TABLE = 1024;
+
+	private final int maxDistance;
+	private final double[] tileByDistance;
+	private final double[] holeByDistance;
+	private final double[] neighbourByDistance;
+	private final double[] decayByAge = new double[AGE_TABLE];
+	private double deviationTiles = Double.NaN;
+	private double deviationHoles = Double.NaN;
+	private double deviationNeighbour = Double.NaN;
+	private double deviationDecay = Double.NaN;
+	private double weight;
+	private double inverseWeight;
+
+	/**
+	 * @param maxDistance the distance the Gaussians are scaled by, xEnv + yEnv
+	 */
+	public UtilityKernel(int maxDistance) {
+		this.maxDistance = maxDistance;
+		tileByDistance = new double[maxDistance + 1];
+		holeByDistance = new double[maxDistance + 1];
+		neighbourByDistance = new double[maxDistance + 1];
+	}
+
+	/**
+	 * Takes the parameters for this step, rebuilding only the tables whose
+	 * deviation changed.
+	 */
+	public void resolve(UtilityParamVector parameters) {
+		double tiles = parameters.get(UtilityParam.DEVIATION_TILES);
+		if (tiles != deviationTiles) {
+			deviationTiles = tiles;
+			fillByDistance(tileByDistance, 100, tiles);
+		}
+		double holes = parameters.get(UtilityParam.DEVIATION_HOLES);
+		if (holes != deviationHoles) {
+			deviationHoles = holes;
+			fillByDistance(holeByDistance, 100, holes);
+		}
+		double neighbour = parameters.get(UtilityParam.DEVIATION_NEIGHBOUR);
+		if (neighbour != deviationNeighbour) {
+			deviationNeighbour = neighbour;
+			fillByDistance(neighbourByDistance, 1, neighbour);
+		}
+		double decay = parameters.get(UtilityParam.DEVIATION_MEM_DECAY);
+		if (decay != deviationDecay) {
+			deviationDecay = decay;
+			for (int age = 0; age < AGE_TABLE; age++) {
+				decayByAge[age] = gaussian(1, decay, age);
+			}
+		}
+		weight = parameters.get(UtilityParam.WEIGHT_COMBINATION);
+		inverseWeight = 1 / weight;
+	}
+
+	private void fillByDistance(double[] table, double peak, double deviation) {
+		for (int d = 0; d <= maxDistance; d++) {
+			table[d] = gaussian(peak, deviation, (double) d / maxDistance);
+		}
+	}
+
+	/**
+	 * Same expression as UtilityAgent2.normalDistribution with mean 0
+	 */
+	private static double gaussian(double peak, double std, double x) {
+		return peak * Math.exp(-1 * (Math.pow(x - 0, 2)) / (2 * Math.pow(std, 2)));
+	}
+
+	/**
+	 * @return utility of a tile distance moves away, seen age steps ago
+	 */
+	public double tileUtility(int distance, int age) {
+		return tileByDistance[distance] * decay(age);
+	}
+
+	public double holeUtility(int distance, int age) {
+		return holeByDistance[distance] * decay(age);
+	}
+
+	private double decay(int age) {
+		return age < AGE_TABLE ? decayByAge[age] : gaussian(1, deviationDecay, age);
+	}
+
+	/**
+	 * @return what a neighbour of the given utility, distance moves away, adds
+	 */
+	public double neighbourUtility(double utility, int distance) {
+		return utility * neighbourByDistance[distance];
+	}
+
+	/**
+	 * @return utility in the space where combining is adding
+	 */
+	public double toCombined(double utility) {
+		double x = Math.pow(utility / 100.0, weight);
+		return 0.5 * Math.log((1 + x) / (1 - x));
+	}
+
+	/**
+	 * @return the utility of a sum of toCombined values
+	 */
+	public double fromCombined(double combined) {
+		return Math.pow(Math.tanh(combined), inverseWeight) * 100;
+	}
+}
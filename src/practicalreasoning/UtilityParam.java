@@ -0,0 +1,58 @@
+package practicalreasoning;
+
+/**
+ * UtilityParam
+ *
+ * Description:
+ *
+ * The agent parameters as typed keys. Each constant carries the string key
+ * of the same parameter in UtilityParams, which the maps, sweep specs and
+ * GA logs use; its ordinal is its slot in a UtilityParamVector.
+ */
+public enum UtilityParam {
+
+	BUFFER_RATIO(UtilityParams.BUFFER_RATIO),
+	DEVIATION_TILES(UtilityParams.DEVIATION_TILES),
+	DEVIATION_HOLES(UtilityParams.DEVIATION_HOLES),
+	DEVIATION_MEM_DECAY(UtilityParams.DEVIATION_MEM_DECAY),
+	DEVIATION_NEIGHBOUR(UtilityParams.DEVIATION_NEIGHBOUR),
+	WEIGHT_COMBINATION(UtilityParams.WEIGHT_COMBINATION),
+	PICKUP_ZERO_TILES(UtilityParams.PICKUP_ZERO_TILES),
+	PICKUP_ONE_TILES(UtilityParams.PICKUP_ONE_TILES),
+	PICKUP_TWO_TILES(UtilityParams.PICKUP_TWO_TILES),
+	PUTDOWN_ONE_TILE(UtilityParams.PUTDOWN_ONE_TILE),
+	PUTDOWN_TWO_TILES(UtilityParams.PUTDOWN_TWO_TILES),
+	PUTDOWN_THREE_TILES(UtilityParams.PUTDOWN_THREE_TILES),
+	NEIGHBOUR_SEARCH_LIMIT_X(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_X),
+	NEIGHBOUR_SEARCH_LIMIT_Y(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_Y),
+	DECAY_MEMORY_AFTER(UtilityParams.DECAY_MEMORY_AFTER),
+	THRESHOLD_EXPLORE(UtilityParams.THRESHOLD_EXPLORE),
+	LENGTH_SNAPS(UtilityParams.LENGTH_SNAPS),
+	UTILITY_STICKY(UtilityParams.UTILITY_STICKY);
+
+	private final String key;
+
+	private UtilityParam(String key) {
+		this.key = key;
+	}
+
+	/**
+	 * @return the parameter's key in UtilityParams maps
+	 */
+	public String key() {
+		return key;
+	}
+
+	/**
+	 * @return the parameter with the given map key
+	 * @throws IllegalArgumentException if there is none
+	 */
+	public static UtilityParam fromKey(String key) {
+		for (UtilityParam param : values()) {
+			if (param.key.equals(key)) {
+				return param;
+			}
+		}
+		throw new IllegalArgumentException("Unknown parameter: " + key);
+	}
+}
@@ -0,0 +1,75 @@
+package practicalreasoning;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * UtilityParamVector
+ *
+ * Description:
+ *
+ * A full set of agent parameters as a double[] indexed by UtilityParam, so
+ * reading one is an array access instead of hashing its string key and
+ * unboxing. The agent, its utility kernel and the GA genome work on these;
+ * the HashMap<String, Double> form (UtilityParams presets, sweep specs)
+ * converts with fromMap and toMap, e.g.
+ *
+ *   UtilityParamVector.fromMap(UtilityParams.bestParamsEnv3())
+ */
+public class UtilityParamVector {
+
+	private static final UtilityParam[] PARAMS = UtilityParam.values();
+
+	private final double[] values = new double[PARAMS.length];
+
+	/**
+	 * Every parameter at 0, see fromMap for a usable set
+	 */
+	public UtilityParamVector() {
+	}
+
+	/**
+	 * @param map must hold every parameter
+	 * @throws IllegalArgumentException if one is missing
+	 */
+	public static UtilityParamVector fromMap(Map<String, Double> map) {
+		UtilityParamVector vector = new UtilityParamVector();
+		for (UtilityParam param : PARAMS) {
+			Double value = map.get(param.key());
+			if (value == null) {
+				throw new IllegalArgumentException("Missing parameter: " + param.key());
+			}
+			vector.values[param.ordinal()] = value;
+		}
+		return vector;
+	}
+
+	public HashMap<String, Double> toMap() {
+		HashMap<String, Double> map = new HashMap<String, Double>();
+		for (UtilityParam param : PARAMS) {
+			map.put(param.key(), values[param.ordinal()]);
+		}
+		return map;
+	}
+
+	public double get(UtilityParam param) {
+		return values[param.ordinal()];
+	}
+
+	public void set(UtilityParam param, double value) {
+		values[param.ordinal()] = value;
+	}
+
+	/**
+	 * Makes this vector a copy of other
+	 */
+	public void copyFrom(UtilityParamVector other) {
+		System.arraycopy(other.values, 0, values, 0, values.length);
+	}
+
+	public UtilityParamVector copy() {
+		UtilityParamVector copy = new UtilityParamVector();
+		copy.copyFrom(this);
+		return copy;
+	}
+}
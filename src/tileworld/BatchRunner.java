@@ -0,0 +1,352 @@
+package tileworld;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import practicalreasoning.UtilityParams;
+import tileworld.environment.TWEnvironment;
+
+/**
+ * BatchRunner
+ *
+ * Description:
+ *
+ * Headless experiment runner. Reads a sweep spec, runs every configuration
+ * once per seed on a thread pool and writes one result row per run (as soon
+ * as it finishes) to a CSV or JSONL file, chosen by the output file's
+ * extension.
+ *
+ * Usage: java tileworld.BatchRunner spec.txt results.csv [threads]
+ *
+ * Spec format, one "key = value" per line, # starts a comment:
+ *
+ *   mode = grid            grid (default): every combination of the listed values
+ *                          list: one configuration per "config" line
+ *   seeds = 1..10          seeds every configuration is run with, a..b or a, b, c
+ *   steps = 5000           steps per run (default Parameters.endTime)
+ *   preset = default, env2 agent parameter set to start from (default, default2,
+ *                          env1, env2, env3 - see UtilityParams)
+ *   exploreThreshold = 10, 18   any UtilityParams key, comma separated values
+ *   env = env1, env3       environment to start from (default, env1, env2, env3)
+ *   lifeTime = 30, 60      any EnvironmentConfig key, comma separated values
+ *   teamMemory = private, shared, delta   how the agents share their memories
+ *   realTimeExpansions = 0, 500   per step budget of the explore search, 0 runs exact A*
+ *   config = env=env3 preset=env3 exploreThreshold=18     (list mode only)
+ *
+ * A run that throws, an Error as much as an exception, is still written,
+ * with the steps it managed, an empty score and the throwable's class and
+ * message in the error column. Its stack trace goes to System.err.
+ */
+public class BatchRunner {
+
+    private static final String[] COLUMNS = {"run", "config", "seed", "score", "holesCreated", "steps", "wallMillis", "stepsPerSecond", "error"};
+
+    private long[] seeds = {Parameters.seed};
+    private long steps = Parameters.endTime;
+    private List<Map<String, String>> configs = new ArrayList<Map<String, String>>();
+    private PrintWriter out;
+    private boolean jsonl;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: java tileworld.BatchRunner spec.txt results.csv|results.jsonl [threads]");
+            System.exit(1);
+        }
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        BatchRunner runner = new BatchRunner();
+        runner.readSpec(args[0]);
+        long start = System.currentTimeMillis();
+        int runs = runner.run(args[1], threads);
+        System.err.println(runs + " runs written to " + args[1] + " in " + (System.currentTimeMillis() - start) + " ms");
+        TWLog.flush();
+        System.exit(0);
+    }
+
+    /**
+     * Parses the sweep spec into the list of configurations and seeds.
+     */
+    public void readSpec(String file) throws IOException {
+        LinkedHashMap<String, String[]> grid = new LinkedHashMap<String, String[]>();
+        boolean listMode = false;
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int hash = line.indexOf('#');
+                if (hash >= 0) {
+                    line = line.substring(0, hash);
+                }
+                line = line.trim();
+                if (line.length() == 0) {
+                    continue;
+                }
+                int eq = line.indexOf('=');
+                if (eq < 0) {
+                    throw new IllegalArgumentException("Expected key = value: " + line);
+                }
+                String key = line.substring(0, eq).trim();
+                String value = line.substring(eq + 1).trim();
+                if (key.equals("mode")) {
+                    listMode = value.equals("list");
+                } else if (key.equals("seeds")) {
+                    seeds = parseSeeds(value);
+                } else if (key.equals("steps")) {
+                    steps = Long.parseLong(value);
+                } else if (key.equals("config")) {
+                    configs.add(parseConfig(value));
+                } else {
+                    checkKey(key);
+                    grid.put(key, value.split("\\s*,\\s*"));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        if (!listMode) {
+            configs.clear();
+            expand(grid, new ArrayList<String>(grid.keySet()), 0, new LinkedHashMap<String, String>());
+        } else if (configs.isEmpty()) {
+            configs.add(new LinkedHashMap<String, String>());
+        }
+    }
+
+    /**
+     * Runs every configuration with every seed and streams the rows to the
+     * output file.
+     *
+     * @return number of runs
+     */
+    public int run(String output, int threads) throws IOException, InterruptedException {
+        jsonl = output.endsWith(".jsonl") || output.endsWith(".json");
+        out = new PrintWriter(new BufferedWriter(new FileWriter(output)));
+        if (!jsonl) {
+            out.println(join(COLUMNS, ","));
+            out.flush();
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        int run = 0;
+        try {
+            for (final Map<String, String> config : configs) {
+                for (final long seed : seeds) {
+                    final int id = run++;
+                    pool.execute(new Runnable() {
+                        public void run() {
+                            runOne(id, config, seed);
+                        }
+                    });
+                }
+            }
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            out.close();
+        }
+        return run;
+    }
+
+    private void runOne(int id, Map<String, String> config, long seed) {
+        ArrayList<HashMap<String, Double>> parameters = new ArrayList<HashMap<String, Double>>();
+        parameters.add(agentParameters(config));
+        parameters.add(agentParameters(config));
+
+        long wallStart = System.nanoTime();
+        TWEnvironment tw = null;
+        long done = 0;
+        String error = "";
+        try {
+            tw = new TWEnvironment(seed, environment(config), parameters);
+            tw.start();
+            while (done < steps && tw.schedule.step(tw)) {
+                done++;
+            }
+        } catch (Throwable e) {
+            // errors too (StackOverflowError, AssertionError...), so the run still gets its row
+            error = failure(id, config, seed, done, e);
+        }
+        if (tw != null) {
+            try {
+                tw.finish();
+            } catch (Throwable e) {
+                String failed = failure(id, config, seed, done, e);
+                error = error.length() == 0 ? failed : error;
+            }
+        }
+        double wallMillis = (System.nanoTime() - wallStart) / 1e6;
+
+        String[] row = {String.valueOf(id), describe(config), String.valueOf(seed),
+            error.length() == 0 ? String.valueOf(tw.getScore()) : "",
+            tw == null ? "" : String.valueOf(tw.getTotalHolesCreated()), String.valueOf(done), String.format("%.1f", wallMillis),
+            String.format("%.1f", wallMillis > 0 ? done * 1000.0 / wallMillis : 0), error};
+        writeRow(row);
+    }
+
+    /**
+     * Prints a failed run's stack trace to System.err.
+     * @return the text of its error column
+     */
+    private String failure(int id, Map<String, String> config, long seed, long done, Throwable e) {
+        synchronized (System.err) {
+            System.err.println("Run " + id + " (" + describe(config) + ", seed " + seed + ") failed after " + done + " steps:");
+            e.printStackTrace();
+        }
+        return e.getClass().getName() + (e.getMessage() == null ? "" : ": " + e.getMessage().replaceAll("\\s+", " "));
+    }
+
+    private synchronized void writeRow(String[] row) {
+        if (jsonl) {
+            StringBuilder sb = new StringBuilder("{");
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append('"').append(COLUMNS[i]).append("\":");
+                boolean text = COLUMNS[i].equals("config") || COLUMNS[i].equals("error");
+                if (row[i].length() == 0 && !COLUMNS[i].equals("config")) {
+                    sb.append("null");
+                } else if (text) {
+                    sb.append('"').append(row[i].replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+                } else {
+                    sb.append(row[i]);
+                }
+            }
+            out.println(sb.append('}'));
+        } else {
+            row[1] = "\"" + row[1] + "\"";
+            row[8] = row[8].length() == 0 ? "" : "\"" + row[8].replace("\"", "\"\"") + "\"";
+            out.println(join(row, ","));
+        }
+        out.flush();
+    }
+
+    /**
+     * The agent parameters for a configuration: the preset, then any
+     * individual UtilityParams keys on top.
+     */
+    private static HashMap<String, Double> agentParameters(Map<String, String> config) {
+        HashMap<String, Double> params = preset(config.containsKey("preset") ? config.get("preset") : "default");
+        for (Map.Entry<String, String> e : config.entrySet()) {
+            if (!e.getKey().equals("preset") && !EnvironmentConfig.isKey(e.getKey())) {
+                params.put(e.getKey(), Double.parseDouble(e.getValue()));
+            }
+        }
+        return params;
+    }
+
+    /**
+     * The environment for a configuration: the env preset, then any
+     * individual EnvironmentConfig keys on top.
+     */
+    private static EnvironmentConfig environment(Map<String, String> config) {
+        Properties values = new Properties();
+        for (Map.Entry<String, String> e : config.entrySet()) {
+            if (EnvironmentConfig.isKey(e.getKey())) {
+                values.setProperty(e.getKey(), e.getValue());
+            }
+        }
+        return EnvironmentConfig.DEFAULT.with(values);
+    }
+
+    private static HashMap<String, Double> preset(String name) {
+        if (name.equals("default")) {
+            return UtilityParams.defaultParams();
+        } else if (name.equals("default2")) {
+            return UtilityParams.defaultParams2();
+        } else if (name.equals("env1")) {
+            return UtilityParams.bestParamsEnv1();
+        } else if (name.equals("env2")) {
+            return UtilityParams.bestParamsEnv2();
+        } else if (name.equals("env3")) {
+            return UtilityParams.bestParamsEnv3();
+        }
+        throw new IllegalArgumentException("Unknown preset: " + name);
+    }
+
+    private static void checkKey(String key) {
+        if (key.equals("preset") || UtilityParams.defaultParams().containsKey(key) || EnvironmentConfig.isKey(key)) {
+            return;
+        }
+        throw new IllegalArgumentException("Unknown sweep key: " + key);
+    }
+
+    private static Map<String, String> parseConfig(String value) {
+        LinkedHashMap<String, String> config = new LinkedHashMap<String, String>();
+        for (String pair : value.trim().split("\\s+")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value in config: " + pair);
+            }
+            String key = pair.substring(0, eq);
+            checkKey(key);
+            config.put(key, pair.substring(eq + 1));
+        }
+        return config;
+    }
+
+    private static long[] parseSeeds(String value) {
+        int range = value.indexOf("..");
+        if (range >= 0) {
+            long from = Long.parseLong(value.substring(0, range).trim());
+            long to = Long.parseLong(value.substring(range + 2).trim());
+            long[] result = new long[(int) (to - from + 1)];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = from + i;
+            }
+            return result;
+        }
+        String[] parts = value.split("\\s*,\\s*");
+        long[] result = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Long.parseLong(parts[i]);
+        }
+        return result;
+    }
+
+    private void expand(LinkedHashMap<String, String[]> grid, List<String> keys, int index, LinkedHashMap<String, String> current) {
+        if (index == keys.size()) {
+            configs.add(new LinkedHashMap<String, String>(current));
+            return;
+        }
+        String key = keys.get(index);
+        for (String value : grid.get(key)) {
+            current.put(key, value);
+            expand(grid, keys, index + 1, current);
+        }
+        current.remove(key);
+    }
+
+    private static String describe(Map<String, String> config) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> e : config.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(e.getKey()).append('=').append(e.getValue());
+        }
+        return sb.toString();
+    }
+
+    private static String join(String[] values, String separator) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(separator);
+            }
+            sb.append(values[i]);
+        }
+        return sb.toString();
+    }
+}
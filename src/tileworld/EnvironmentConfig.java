@@ -0,0 +1,340 @@
+package tileworld;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import tileworld.agent.TWTeamMemory;
+
+/**
+ * EnvironmentConfig
+ *
+ * Description:
+ *
+ * Immutable description of one Tileworld environment: map size, object
+ * creation rates, object lifetime, the agents' fuel and sensor range and
+ * how the agents share their memories (teamMemory: private, shared or delta)
+ * and the per step budget of the agents' real-time explore search
+ * (realTimeExpansions cells and realTimeNanos ns, both 0 for exact A*)
+ * and whether what the agents remember decays (memoryDecay).
+ * Every TWEnvironment holds its own config, so environments of different
+ * kinds can run side by side in one JVM. DEFAULT is built from Parameters,
+ * ENV1, ENV2 and ENV3 are the three standard test environments.
+ *
+ * A config can be read from a properties file or from "key=value" command
+ * line arguments, e.g.
+ *
+ *   env=env3 lifeTime=150 sensorRange=3
+ *
+ * where env (or file=path) names the base the other keys are applied to.
+ */
+public final class EnvironmentConfig {
+
+    /** Keys understood by with() and the loaders */
+    public static final List<String> KEYS = Arrays.asList("xDimension", "yDimension",
+            "tileMean", "tileDev", "holeMean", "holeDev", "obstacleMean", "obstacleDev",
+            "lifeTime", "fuelLevel", "sensorRange", "teamMemory", "realTimeExpansions", "realTimeNanos",
+            "memoryDecay");
+
+    public static final EnvironmentConfig DEFAULT = new EnvironmentConfig(Parameters.xDimension, Parameters.yDimension,
+            Parameters.tileMean, Parameters.tileDev, Parameters.holeMean, Parameters.holeDev,
+            Parameters.obstacleMean, Parameters.obstacleDev, Parameters.lifeTime,
+            Parameters.defaultFuelLevel, Parameters.defaultSensorRange);
+
+    public static final EnvironmentConfig ENV1 = new EnvironmentConfig(100, 100,
+            0.2, 0.05, 0.2, 0.05, 0.2, 0.05, 100, 1000, 2);
+
+    public static final EnvironmentConfig ENV2 = new EnvironmentConfig(50, 50,
+            2, 0.5, 2, 0.5, 2, 0.5, 30, 1000, 2);
+
+    public static final EnvironmentConfig ENV3 = new EnvironmentConfig(150, 40,
+            0.02, 0.001, 0.2, 0.01, 0.5, 0.1, 120, 1000, 2);
+
+    private final int xDimension;
+    private final int yDimension;
+    private final double tileMean;
+    private final double tileDev;
+    private final double holeMean;
+    private final double holeDev;
+    private final double obstacleMean;
+    private final double obstacleDev;
+    private final int lifeTime;
+    private final int fuelLevel;
+    private final int sensorRange;
+    private final TWTeamMemory.Mode teamMemory;
+    private final int realTimeExpansions;
+    private final long realTimeNanos;
+    private final boolean memoryDecay;
+
+    public EnvironmentConfig(int xDimension, int yDimension, double tileMean, double tileDev,
+            double holeMean, double holeDev, double obstacleMean, double obstacleDev,
+            int lifeTime, int fuelLevel, int sensorRange) {
+        this(xDimension, yDimension, tileMean, tileDev, holeMean, holeDev, obstacleMean, obstacleDev,
+                lifeTime, fuelLevel, sensorRange, TWTeamMemory.Mode.PRIVATE);
+    }
+
+    public EnvironmentConfig(int xDimension, int yDimension, double tileMean, double tileDev,
+            double holeMean, double holeDev, double obstacleMean, double obstacleDev,
+            int lifeTime, int fuelLevel, int sensorRange, TWTeamMemory.Mode teamMemory) {
+        this(xDimension, yDimension, tileMean, tileDev, holeMean, holeDev, obstacleMean, obstacleDev,
+                lifeTime, fuelLevel, sensorRange, teamMemory, 0, 0, true);
+    }
+
+    /**
+     * @param realTimeExpansions most cells an agent's explore search may expand per step, 0 for no limit
+     * @param realTimeNanos most ns an agent's explore search may take per step, 0 for no limit;
+     * with both 0 the search is exact A*, otherwise RTAA* (RealTimePathGenerator)
+     * @param memoryDecay whether remembered objects decay, see TWAgentWorkingMemory
+     */
+    public EnvironmentConfig(int xDimension, int yDimension, double tileMean, double tileDev,
+            double holeMean, double holeDev, double obstacleMean, double obstacleDev,
+            int lifeTime, int fuelLevel, int sensorRange, TWTeamMemory.Mode teamMemory,
+            int realTimeExpansions, long realTimeNanos, boolean memoryDecay) {
+        if (xDimension <= 0 || yDimension <= 0) {
+            throw new IllegalArgumentException("Map dimensions must be positive: " + xDimension + "x" + yDimension);
+        }
+        if (lifeTime <= 0 || fuelLevel <= 0 || sensorRange < 0) {
+            throw new IllegalArgumentException("Invalid lifeTime, fuelLevel or sensorRange");
+        }
+        if (realTimeExpansions < 0 || realTimeNanos < 0) {
+            throw new IllegalArgumentException("Invalid realTimeExpansions or realTimeNanos");
+        }
+        this.xDimension = xDimension;
+        this.yDimension = yDimension;
+        this.tileMean = tileMean;
+        this.tileDev = tileDev;
+        this.holeMean = holeMean;
+        this.holeDev = holeDev;
+        this.obstacleMean = obstacleMean;
+        this.obstacleDev = obstacleDev;
+        this.lifeTime = lifeTime;
+        this.fuelLevel = fuelLevel;
+        this.sensorRange = sensorRange;
+        this.teamMemory = teamMemory;
+        this.realTimeExpansions = realTimeExpansions;
+        this.realTimeNanos = realTimeNanos;
+        this.memoryDecay = memoryDecay;
+    }
+
+    /**
+     * @param name default, env1, env2 or env3 (case insensitive)
+     */
+    public static EnvironmentConfig preset(String name) {
+        if (name.equalsIgnoreCase("default")) {
+            return DEFAULT;
+        } else if (name.equalsIgnoreCase("env1")) {
+            return ENV1;
+        } else if (name.equalsIgnoreCase("env2")) {
+            return ENV2;
+        } else if (name.equalsIgnoreCase("env3")) {
+            return ENV3;
+        }
+        throw new IllegalArgumentException("Unknown environment: " + name);
+    }
+
+    /**
+     * Reads a properties file. An "env" entry picks the base preset, every
+     * other entry must be one of KEYS.
+     */
+    public static EnvironmentConfig load(String file) throws IOException {
+        Properties properties = new Properties();
+        Reader reader = new FileReader(file);
+        try {
+            properties.load(reader);
+        } finally {
+            reader.close();
+        }
+        return DEFAULT.with(properties);
+    }
+
+    /**
+     * Builds a config from "key=value" arguments. "env=name" picks a preset
+     * and "file=path" loads a properties file as the base, the remaining
+     * keys override it. Arguments without an '=' are ignored.
+     */
+    public static EnvironmentConfig fromArgs(String[] args) throws IOException {
+        EnvironmentConfig base = DEFAULT;
+        Properties overrides = new Properties();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                continue;
+            }
+            String key = arg.substring(0, eq).trim();
+            String value = arg.substring(eq + 1).trim();
+            if (key.equals("file")) {
+                base = load(value);
+            } else {
+                overrides.setProperty(key, value);
+            }
+        }
+        return base.with(overrides);
+    }
+
+    /**
+     * @return true if key can be passed to with()
+     */
+    public static boolean isKey(String key) {
+        return key.equals("env") || KEYS.contains(key);
+    }
+
+    /**
+     * Returns a copy of this config with the given entries replaced. An
+     * "env" entry first swaps the base for that preset.
+     */
+    public EnvironmentConfig with(Properties values) {
+        EnvironmentConfig base = values.containsKey("env") ? preset(values.getProperty("env").trim()) : this;
+        for (String key : values.stringPropertyNames()) {
+            if (!isKey(key)) {
+                throw new IllegalArgumentException("Unknown environment key: " + key);
+            }
+        }
+        return new EnvironmentConfig(
+                intValue(values, "xDimension", base.xDimension),
+                intValue(values, "yDimension", base.yDimension),
+                doubleValue(values, "tileMean", base.tileMean),
+                doubleValue(values, "tileDev", base.tileDev),
+                doubleValue(values, "holeMean", base.holeMean),
+                doubleValue(values, "holeDev", base.holeDev),
+                doubleValue(values, "obstacleMean", base.obstacleMean),
+                doubleValue(values, "obstacleDev", base.obstacleDev),
+                intValue(values, "lifeTime", base.lifeTime),
+                intValue(values, "fuelLevel", base.fuelLevel),
+                intValue(values, "sensorRange", base.sensorRange),
+                modeValue(values, "teamMemory", base.teamMemory),
+                intValue(values, "realTimeExpansions", base.realTimeExpansions),
+                longValue(values, "realTimeNanos", base.realTimeNanos),
+                booleanValue(values, "memoryDecay", base.memoryDecay));
+    }
+
+    public EnvironmentConfig with(String key, String value) {
+        Properties values = new Properties();
+        values.setProperty(key, value);
+        return with(values);
+    }
+
+    private static int intValue(Properties values, String key, int otherwise) {
+        String value = values.getProperty(key);
+        return value == null ? otherwise : Integer.parseInt(value.trim());
+    }
+
+    private static long longValue(Properties values, String key, long otherwise) {
+        String value = values.getProperty(key);
+        return value == null ? otherwise : Long.parseLong(value.trim());
+    }
+
+    private static boolean booleanValue(Properties values, String key, boolean otherwise) {
+        String value = values.getProperty(key);
+        if (value == null) {
+            return otherwise;
+        }
+        value = value.trim();
+        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("Invalid " + key + ": " + value);
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    private static TWTeamMemory.Mode modeValue(Properties values, String key, TWTeamMemory.Mode otherwise) {
+        String value = values.getProperty(key);
+        return value == null ? otherwise : TWTeamMemory.Mode.valueOf(value.trim().toUpperCase());
+    }
+
+    private static double doubleValue(Properties values, String key, double otherwise) {
+        String value = values.getProperty(key);
+        return value == null ? otherwise : Double.parseDouble(value.trim());
+    }
+
+    public int getxDimension() {
+        return xDimension;
+    }
+
+    public int getyDimension() {
+        return yDimension;
+    }
+
+    public double getTileMean() {
+        return tileMean;
+    }
+
+    public double getTileDev() {
+        return tileDev;
+    }
+
+    public double getHoleMean() {
+        return holeMean;
+    }
+
+    public double getHoleDev() {
+        return holeDev;
+    }
+
+    public double getObstacleMean() {
+        return obstacleMean;
+    }
+
+    public double getObstacleDev() {
+        return obstacleDev;
+    }
+
+    /**
+     * @return number of steps a tile, hole or obstacle stays in the environment
+     */
+    public int getLifeTime() {
+        return lifeTime;
+    }
+
+    /**
+     * @return fuel an agent starts with and is refuelled to
+     */
+    public int getFuelLevel() {
+        return fuelLevel;
+    }
+
+    public int getSensorRange() {
+        return sensorRange;
+    }
+
+    /**
+     * @return how the agents' working memories are shared
+     */
+    public TWTeamMemory.Mode getTeamMemory() {
+        return teamMemory;
+    }
+
+    /**
+     * @return most cells an agent's explore search may expand per step, 0 for no limit
+     */
+    public int getRealTimeExpansions() {
+        return realTimeExpansions;
+    }
+
+    /**
+     * @return most ns an agent's explore search may take per step, 0 for no limit
+     */
+    public long getRealTimeNanos() {
+        return realTimeNanos;
+    }
+
+    /**
+     * @return whether remembered objects decay, otherwise they are only replaced by newer observations
+     */
+    public boolean isMemoryDecay() {
+        return memoryDecay;
+    }
+
+    @Override
+    public String toString() {
+        return "xDimension=" + xDimension + " yDimension=" + yDimension
+                + " tileMean=" + tileMean + " tileDev=" + tileDev
+                + " holeMean=" + holeMean + " holeDev=" + holeDev
+                + " obstacleMean=" + obstacleMean + " obstacleDev=" + obstacleDev
+                + " lifeTime=" + lifeTime + " fuelLevel=" + fuelLevel + " sensorRange=" + sensorRange
+                + " teamMemory=" + teamMemory.name().toLowerCase()
+                + " realTimeExpansions=" + realTimeExpansions + " realTimeNanos=" + realTimeNanos
+                + " memoryDecay=" + memoryDecay;
+    }
+}
@@ -11,7 +11,9 @@ package tileworld;
  * Description:
  *
  * Class used to store global simulation parameters.
- * Environment related parameters are still in the TWEnvironment class.
+ * The environment and agent values below are only the defaults
+ * (EnvironmentConfig.DEFAULT), each TWEnvironment reads its own
+ * EnvironmentConfig, see EnvironmentConfig for ENV1/ENV2/ENV3.
  *
  */
 public class Parameters {
@@ -58,6 +58,9 @@ public class TWGUI extends GUIState {
     public TWGUI(SimState state) {
         super(state);
         instance = this; 
+        if (state instanceof TWEnvironment) {
+            ((TWEnvironment) state).setGUI(this);
+        }
     }
 
     /**
@@ -100,11 +103,11 @@ public class TWGUI extends GUIState {
 
         agentGridPortrayal.setField(((TWEnvironment) state).getAgentGrid());
 
-        agentGridPortrayal.setPortrayalForClass(TWAgent.class, TWAgent.getPortrayal());
+        agentGridPortrayal.setPortrayalForClass(TWAgent.class, TWAgent.getPortrayal(((TWEnvironment) state).getConfig().getSensorRange()));
 
 
        // gridPortrayal.setPortrayalForClass(SimpleTWAgent.class, TWAgent.getPortrayal());
-        agentGridPortrayal.setPortrayalForRemainder(TWAgent.getPortrayal());
+        agentGridPortrayal.setPortrayalForRemainder(TWAgent.getPortrayal(((TWEnvironment) state).getConfig().getSensorRange()));
 
         objectGridPortrayal.setPortrayalForClass(TWHole.class, TWHole.getPortrayal());
         objectGridPortrayal.setPortrayalForClass(TWTile.class, TWTile.getPortrayal());
@@ -0,0 +1,205 @@
+package tileworld;
+
+import java.io.PrintStream;
+
+/**
+ * TWLog
+ *
+ * Description:
+ *
+ * Leveled event log for agents and the environment. Only warnings are
+ * recorded by default and a call site below the level costs one static int
+ * compare:
+ *
+ *   if (TWLog.on(TWLog.Level.DEBUG)) TWLog.log(TWLog.Level.DEBUG, TWLog.Event.THINK, time, name, score, fuel, intention);
+ *
+ * An event is a fixed set of primitives and references (time, source, x, y,
+ * detail) copied into a preallocated ring, so logging allocates nothing on
+ * the simulation thread. A daemon thread drains the ring and does the
+ * formatting and printing. When the ring is full new events are dropped
+ * and counted rather than blocking the simulation. Several environments
+ * (BatchRunner) may log at once, writes to the ring are synchronized.
+ *
+ * The level is set with setLevel or the system property tileworld.log
+ * (off, warn, info, debug or trace). Events are printed to System.err, as
+ * it is when they are drained, unless setOutput gave another stream. A
+ * Throwable detail is printed with its stack trace.
+ */
+public final class TWLog {
+
+    public enum Level {
+        OFF, WARN, INFO, DEBUG, TRACE
+    }
+
+    /** What happened, x, y and detail are explained per event */
+    public enum Event {
+        /** x = score, y = fuel, detail = intention */
+        THINK,
+        /** x, y = the other agent's target, detail = our intention */
+        INTENTION_CLASH,
+        /** x, y = the agent, detail = the direction of the step, one event per step */
+        REFUEL_PATH,
+        /** x, y = the agent */
+        NO_REFUEL_PATH,
+        /** x, y = the tile */
+        TILE_PICKED,
+        /** x = the score, y = the fuel */
+        TILE_PUT,
+        /** x = the fuel */
+        REFUELED,
+        /** detail = the exception */
+        ERROR
+    }
+
+    private static final int CAPACITY = 1 << 16;
+    private static final int MASK = CAPACITY - 1;
+
+    private static volatile int threshold = Level.WARN.ordinal();
+    /** Stream set by setOutput, null for System.err */
+    private static PrintStream out;
+
+    private static final Object lock = new Object();
+    private static final byte[] levels = new byte[CAPACITY];
+    private static final Event[] events = new Event[CAPACITY];
+    private static final double[] times = new double[CAPACITY];
+    private static final Object[] sources = new Object[CAPACITY];
+    private static final int[] xs = new int[CAPACITY];
+    private static final int[] ys = new int[CAPACITY];
+    private static final Object[] details = new Object[CAPACITY];
+    /** Next slot to write and next slot to drain, both only grow */
+    private static long head;
+    private static long tail;
+    private static long dropped;
+    private static Thread sink;
+
+    static {
+        String level = System.getProperty("tileworld.log");
+        if (level != null) {
+            setLevel(Level.valueOf(level.trim().toUpperCase()));
+        }
+    }
+
+    private TWLog() {
+    }
+
+    /**
+     * Sets the most verbose level that is recorded.
+     */
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    public static Level getLevel() {
+        return Level.values()[threshold];
+    }
+
+    /**
+     * @param stream where events are printed, null for System.err
+     */
+    public static void setOutput(PrintStream stream) {
+        synchronized (lock) {
+            out = stream;
+        }
+    }
+
+    /**
+     * @return true if events of this level are recorded, check it before
+     * gathering anything for log
+     */
+    public static boolean on(Level level) {
+        return level.ordinal() <= threshold;
+    }
+
+    public static void log(Level level, Event event, double time, Object source, int x, int y, Object detail) {
+        if (level.ordinal() > threshold) {
+            return;
+        }
+        synchronized (lock) {
+            if (sink == null) {
+                // started by the first event, so nothing runs while logging is quiet
+                sink = new Thread(new Runnable() {
+                    public void run() {
+                        drain();
+                    }
+                }, "TWLog");
+                sink.setDaemon(true);
+                sink.start();
+            }
+            if (head - tail == CAPACITY) {
+                dropped++;
+                return;
+            }
+            int slot = (int) head & MASK;
+            levels[slot] = (byte) level.ordinal();
+            events[slot] = event;
+            times[slot] = time;
+            sources[slot] = source;
+            xs[slot] = x;
+            ys[slot] = y;
+            details[slot] = detail;
+            head++;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Waits until every event recorded so far has been printed, call before
+     * System.exit.
+     */
+    public static void flush() {
+        synchronized (lock) {
+            while (sink != null && tail != head) {
+                try {
+                    lock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            (out == null ? System.err : out).flush();
+        }
+    }
+
+    private static void drain() {
+        StringBuilder line = new StringBuilder(128);
+        while (true) {
+            PrintStream target;
+            long lost;
+            Throwable thrown;
+            synchronized (lock) {
+                while (tail == head) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                int slot = (int) tail & MASK;
+                line.setLength(0);
+                line.append(Level.values()[levels[slot]]).append(" t=").append(times[slot])
+                        .append(' ').append(sources[slot]).append(' ').append(events[slot])
+                        .append(' ').append(xs[slot]).append(',').append(ys[slot]);
+                if (details[slot] != null) {
+                    line.append(' ').append(details[slot]);
+                }
+                thrown = details[slot] instanceof Throwable ? (Throwable) details[slot] : null;
+                sources[slot] = null;
+                details[slot] = null;
+                lost = dropped;
+                dropped = 0;
+                target = out == null ? System.err : out;
+            }
+            if (lost > 0) {
+                target.println("TWLog dropped " + lost + " events");
+            }
+            target.println(line);
+            if (thrown != null) {
+                thrown.printStackTrace(target);
+            }
+            synchronized (lock) {
+                tail++;
+                lock.notifyAll();
+            }
+        }
+    }
+}
@@ -28,9 +28,15 @@ import tileworld.environment.TWEnvironment;
  */
 public class TileworldMain {
 
-    public static void main(String args[]) {
+    /**
+     * Runs one headless simulation.
+     *
+     * @param args environment settings, see EnvironmentConfig#fromArgs
+     * (e.g. env=env1 or file=env.properties lifeTime=50)
+     */
+    public static void main(String args[]) throws java.io.IOException {
         
-        TWEnvironment tw = new TWEnvironment(Parameters.seed);
+        TWEnvironment tw = new TWEnvironment(Parameters.seed, EnvironmentConfig.fromArgs(args));
         tw.start();
       
         long steps = 0;
@@ -46,7 +52,9 @@ public class TileworldMain {
             }
         }
         tw.finish();
+        System.out.print(tw.getProfiler().report());
         System.out.println(tw.getScore());
+        TWLog.flush();
         System.exit(0);  // make sure any threads finish up
     }
 
@@ -98,6 +106,7 @@ public class TileworldMain {
             }
         }
         tw.finish();
+        TWLog.flush();
         System.exit(0);  // make sure any threads finish up
     }
 
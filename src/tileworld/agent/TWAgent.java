@@ -9,11 +9,15 @@ import sim.engine.Steppable;
 import sim.portrayal.Inspector;
 import sim.portrayal.LocationWrapper;
 import sim.portrayal.Portrayal;
-import tileworld.Parameters;
+import tileworld.EnvironmentConfig;
+import tileworld.TWLog;
+import tileworld.TWLog.Event;
+import tileworld.TWLog.Level;
 import tileworld.environment.TWDirection;
 import tileworld.environment.TWEntity;
 import tileworld.environment.TWEnvironment;
 import tileworld.environment.TWHole;
+import tileworld.environment.TWProfiler;
 import tileworld.environment.TWTile;
 import tileworld.exceptions.CellBlockedException;
 import tileworld.exceptions.InsufficientFuelException;
@@ -36,7 +40,6 @@ public abstract class TWAgent extends TWEntity implements Steppable {
 
     protected int score;
 
-	public static boolean DEBUG = false;
     public int getScore() {
         return score;
     }
@@ -47,7 +50,7 @@ public abstract class TWAgent extends TWEntity implements Steppable {
         this.score = 0;
         this.fuelLevel = fuelLevel;
         this.carriedTiles = new ArrayList<TWTile>();
-        this.sensor = new TWAgentSensor(this, Parameters.defaultSensorRange);
+        this.sensor = new TWAgentSensor(this, env.getConfig().getSensorRange());
         this.memory = new TWAgentWorkingMemory(this, env.schedule, env.getxDimension(), env.getyDimension());
     }
     /**
@@ -124,10 +127,9 @@ public abstract class TWAgent extends TWEntity implements Steppable {
         //below is not strictly necessary as the location will be overwritten with agent
         //but for clarity include this here.
         if(tile != null)
-        this.getEnvironment().getObjectGrid().set(tile.getX(), tile.getY(), null);
-        if(DEBUG)
-        	if(tile != null)
-        	System.out.println("Tile picked at " + x + " " + y);
+        this.getEnvironment().setGridObject(tile.getX(), tile.getY(), null);
+        if(tile != null)
+        	TWLog.log(Level.DEBUG, Event.TILE_PICKED, getEnvironment().schedule.getTime(), getName(), x, y, null);
     }
 
     /**
@@ -139,14 +141,10 @@ public abstract class TWAgent extends TWEntity implements Steppable {
     protected final void putTileInHole(TWHole hole) {
         assert (this.hasTile() && sameLocation(hole));
         this.carriedTiles.remove(0); //remove first tile in list
-        this.getEnvironment().getObjectGrid().set(hole.getX(), hole.getY(), null);
+        this.getEnvironment().setGridObject(hole.getX(), hole.getY(), null);
         this.score++;
         
-        if(DEBUG)
-        {
-        	System.out.println("Tile put at " + x + " " + y);
-        	System.out.println("Score: " + this.score);
-        }
+        TWLog.log(Level.DEBUG, Event.TILE_PUT, getEnvironment().schedule.getTime(), getName(), this.score, (int) fuelLevel, null);
     }
 
     /**
@@ -156,9 +154,8 @@ public abstract class TWAgent extends TWEntity implements Steppable {
      */
     protected final void refuel() {
         assert (this.sameLocation(this.getEnvironment().getFuelingStation()));
-        this.fuelLevel = Parameters.defaultFuelLevel;
-        if(DEBUG)
-        	System.out.print("REFUELED");
+        this.fuelLevel = this.getEnvironment().getConfig().getFuelLevel();
+        TWLog.log(Level.DEBUG, Event.REFUELED, getEnvironment().schedule.getTime(), getName(), (int) fuelLevel, 0, null);
     }
 
     /**
@@ -196,9 +193,16 @@ public abstract class TWAgent extends TWEntity implements Steppable {
      * @param state
      */
     public final void step(SimState state) {
+        TWProfiler profiler = this.getEnvironment().getProfiler();
+        long start = System.nanoTime();
         this.sense();
+        long sensed = System.nanoTime();
         TWThought thought = this.think();
+        long decided = System.nanoTime();
         this.act(thought);
+        profiler.record(TWProfiler.Phase.SENSE, sensed - start);
+        profiler.record(TWProfiler.Phase.THINK, decided - sensed);
+        profiler.record(TWProfiler.Phase.ACT, System.nanoTime() - decided);
     }
 
     /**
@@ -208,8 +212,15 @@ public abstract class TWAgent extends TWEntity implements Steppable {
      * @return
      */
     public static Portrayal getPortrayal() {
+        return getPortrayal(EnvironmentConfig.DEFAULT.getSensorRange());
+    }
+
+    /**
+     * As getPortrayal() but drawing the given sensor range
+     */
+    public static Portrayal getPortrayal(int sensorRange) {
         //red filled box.
-        return new TWAgentPortrayal(Color.blue, Parameters.defaultSensorRange) {
+        return new TWAgentPortrayal(Color.blue, sensorRange) {
 
             @Override
             public Inspector getInspector(LocationWrapper wrapper, GUIState state) {
@@ -240,6 +251,13 @@ public abstract class TWAgent extends TWEntity implements Steppable {
         return memory;
     }
 
+    /**
+     * Returns the sensor this agent senses with
+     */
+    public TWAgentSensor getSensor() {
+        return sensor;
+    }
+
     /**
      * Update the agents location on the agent grid.
      * @param xpos
@@ -5,9 +5,9 @@
 
 package tileworld.agent;
 
+import sim.field.grid.ObjectGrid2D;
 import sim.util.Bag;
 import sim.util.IntBag;
-import tileworld.environment.TWEnvironment;
 
 /**
  * TWContextBuilder
@@ -26,12 +26,19 @@ import tileworld.environment.TWEnvironment;
  * <Object, Time> which indicates the object which was seen and the time at which
  * it was seen. Object is actually a reference to the instance of that TWEntity.
  *
+ * Sensing allocates nothing: the object grid window is read straight into
+ * memory and the sensed agents go into bags reused from step to step.
+ *
  */
 public class TWAgentSensor {
 
 
     TWAgent me;
     int sensorRange;
+    /** Agents seen by the last sense, and where */
+    private final Bag sensedAgents = new Bag();
+    private final IntBag agentXCoords = new IntBag();
+    private final IntBag agentYCoords = new IntBag();
 
     TWAgentSensor(TWAgent moi, int defaultSensorRange) {
        me = moi;
@@ -43,23 +50,41 @@ public class TWAgentSensor {
      * specified sensor range
      */
     public void sense(){
-        Bag sensedObjects = new Bag();
-        Bag sensedAgents = new Bag();
-        IntBag objectXCoords = new IntBag();
-        IntBag objectYCoords = new IntBag();
-        IntBag agentXCoords = new IntBag();
-        IntBag agentYCoords = new IntBag();
-        
-        
+        //sense agents
+        sensedAgents.clear();
+        agentXCoords.clear();
+        agentYCoords.clear();
+        ObjectGrid2D agentGrid = me.getEnvironment().getAgentGrid();
+        int x0 = Math.max(me.getX() - sensorRange, 0), x1 = Math.min(me.getX() + sensorRange, agentGrid.getWidth() - 1);
+        int y0 = Math.max(me.getY() - sensorRange, 0), y1 = Math.min(me.getY() + sensorRange, agentGrid.getHeight() - 1);
+        for (int i = x0; i <= x1; i++) {
+            for (int j = y0; j <= y1; j++) {
+                Object agent = agentGrid.field[i][j];
+                if (agent != null) {
+                    sensedAgents.add(agent);
+                    agentXCoords.add(i);
+                    agentYCoords.add(j);
+                }
+            }
+        }
 
-        //sense objects
-        me.getEnvironment().getObjectGrid().getNeighborsMaxDistance(me.getX(), me.getY(), sensorRange, false, sensedObjects, objectXCoords, objectYCoords);
-        me.getEnvironment().getObjectGrid().getNeighborsMaxDistance(me.getX(), me.getY(), sensorRange, false, sensedAgents, agentXCoords, agentYCoords);
+        //sense objects, importing facts to memory
+        me.getMemory().updateMemory(me.getEnvironment().getObjectGrid(), me.getX(), me.getY(), sensorRange);
+    }
 
-        //import facts to memory
-        me.getMemory().updateMemory(sensedObjects, objectXCoords, objectYCoords, sensedAgents,agentXCoords,agentYCoords);
+    /**
+     * @return the agents (this one included) seen by the last sense, valid until the next
+     */
+    public Bag getSensedAgents() {
+        return sensedAgents;
+    }
 
+    public IntBag getAgentXCoords() {
+        return agentXCoords;
     }
 
+    public IntBag getAgentYCoords() {
+        return agentYCoords;
+    }
 
 }
@@ -1,22 +1,23 @@
 package tileworld.agent;
 
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 
 import org.omg.CORBA.Environment;
 
+import ec.util.MersenneTwisterFast;
 import sim.engine.Schedule;
 import sim.field.grid.ObjectGrid2D;
 import sim.util.Bag;
 import sim.util.Int2D;
 import sim.util.IntBag;
-import tileworld.Parameters;
 import tileworld.environment.NeighbourSpiral;
 import tileworld.environment.TWEntity;
 import tileworld.environment.TWHole;
 import tileworld.environment.TWObject;
 import tileworld.environment.TWObstacle;
+import tileworld.environment.TWProfiler;
 import tileworld.environment.TWTile;
 
 /**
@@ -37,6 +38,11 @@ import tileworld.environment.TWTile;
  *         time the element has been in memory. The maximum length of time which
  *         the agent can remember is specified as MAX_TIME. Any memories beyond
  *         this are automatically removed.
+ *
+ *         Removal is scheduled by TWMemoryDecay when an object is stored, see
+ *         there for how.
+ *         The environment's config can turn decay off (memoryDecay=false),
+ *         objects are then only replaced by newer observations.
  */
 public class TWAgentWorkingMemory {
 
@@ -53,37 +59,138 @@ public class TWAgentWorkingMemory {
      * However, when updating the memory a queue is very slow.
      * Here we trade off memory (in that we maintian a complete image of the map)
      * for speed of update. Updating the memory is a lot more straightfoward.
+     *
+     * The image is kept as parallel arrays indexed by x * height + y rather
+     * than a TWAgentPercept per cell: what kind of thing was last seen in the
+     * cell, when, and the object itself (null if the cell was empty).
+     * Percepts are only created when asked for with getPerceptAt.
+     */
+    private static final byte EMPTY = 0;
+    private static final byte TILE = 1;
+    private static final byte HOLE = 2;
+    private static final byte OBSTACLE = 3;
+    private static final byte OTHER = 4;
+    private final int height;
+    private final byte[] kindOf;
+    private final double[] seenAt;
+    private final TWEntity[] objectOf;
+    /**
+     * Where the remembered tiles, holes and obstacles are, by kind
+     */
+    private final TWMemoryIndex index;
+    /** Scratch buffers for index queries */
+    private final int[] found;
+    private final long[] foundByDistance;
+    /**
+     * Schedules forgetting of indexed objects, null when the environment's
+     * config turns memoryDecay off (objects are then only replaced by newer
+     * observations)
+     */
+    private final TWMemoryDecay decay;
+    /**
+     * Team this memory belongs to, null if none. In SHARED mode everything
+     * above is one copy held by all the team's memories; a memory is then
+     * just a view for its own agent.
+     */
+    private final TWTeamMemory team;
+    /**
+     * Cells sensed since they were last sent to the team, in DELTA mode
      */
-    private TWAgentPercept[][] objects;
-    private HashSet<Int2D> tilesAndHoles;
+    private final int[] changed;
+    private final boolean[] isChanged;
+    private int changedCount;
     /**
      * Stores (for each TWObject type) the closest object within sensor range,
      * null if no objects are in sensor range
      */
-	private ObjectGrid2D memoryGrid;
-    static private List<Int2D> spiral = new NeighbourSpiral(Parameters.defaultSensorRange * 4).spiral();
+	private final ObjectGrid2D memoryGrid;
+    private final List<Int2D> spiral;
+    /**
+     * Position of each offset in spiral, indexed (dx + spiralRadius) * (2 * spiralRadius + 1) + dy + spiralRadius,
+     * -1 for offsets the spiral does not visit
+     */
+    private final int spiralRadius;
+    private final int[] spiralRank;
+    /**
+     * Told whenever a cell flips between blocked and free in memory
+     */
+    private final ArrayList<TWBlockedCellListener> blockedCellListeners;
+    /**
+     * Side of the square regions obstacle versions are kept for
+     */
+    public static final int REGION_SIZE = 8;
+    /**
+     * Bumped whenever a cell of the region flips between blocked and free,
+     * indexed rx * regionRows + ry
+     */
+    private final int regionRows;
+    private final int[] regionVersion;
 //    private List<TWAgent> neighbouringAgents = new ArrayList<TWAgent>();
 
     public TWAgentWorkingMemory(TWAgent moi, Schedule schedule, int x, int y) {
 
         this.me = moi;
+        this.schedule = schedule;
+        this.team = me.getEnvironment().getTeamMemory();
+        TWAgentWorkingMemory shared = team == null ? null : team.join(this);
+        this.height = y;
+        if (shared != null) {
+            this.kindOf = shared.kindOf;
+            this.seenAt = shared.seenAt;
+            this.objectOf = shared.objectOf;
+            this.index = shared.index;
+            this.found = shared.found;
+            this.foundByDistance = shared.foundByDistance;
+            this.decay = shared.decay;
+            this.spiral = shared.spiral;
+            this.spiralRadius = shared.spiralRadius;
+            this.spiralRank = shared.spiralRank;
+            this.memoryGrid = shared.memoryGrid;
+            this.blockedCellListeners = shared.blockedCellListeners;
+            this.regionRows = shared.regionRows;
+            this.regionVersion = shared.regionVersion;
+        } else {
+            //every cell starts as seen empty at time 0
+            this.kindOf = new byte[x * y];
+            this.seenAt = new double[x * y];
+            this.objectOf = new TWEntity[x * y];
+            this.index = new TWMemoryIndex(x, y);
+            this.found = new int[x * y];
+            this.foundByDistance = new long[x * y];
+            //own generator, seeded without drawing from the environment's, so decay doesn't shift its draws
+            this.decay = me.getEnvironment().getConfig().isMemoryDecay() ? new TWMemoryDecay(MAX_TIME, MEM_DECAY,
+                    new MersenneTwisterFast(me.getEnvironment().nextMemorySeed())) : null;
+            this.spiral = new NeighbourSpiral(me.getEnvironment().getConfig().getSensorRange() * 4).spiral();
+            this.spiralRadius = radiusOf(spiral);
+            this.spiralRank = rankSpiral(spiral, spiralRadius);
+            this.memoryGrid = new ObjectGrid2D(me.getEnvironment().getxDimension(), me.getEnvironment().getyDimension());
+            this.blockedCellListeners = new ArrayList<TWBlockedCellListener>();
+            this.regionRows = (y + REGION_SIZE - 1) / REGION_SIZE;
+            this.regionVersion = new int[((x + REGION_SIZE - 1) / REGION_SIZE) * regionRows];
+        }
+        boolean delta = team != null && team.getMode() == TWTeamMemory.Mode.DELTA;
+        this.changed = delta ? new int[x * y] : null;
+        this.isChanged = delta ? new boolean[x * y] : null;
+    }
 
-        this.objects = new TWAgentPercept[x][y];
-        int i = 0;
-        int j = 0;
-        for (i = 0; i<x; i++)
-        {
-        	for(j=0;j<y;j++)
-        	{
-        		Int2D pos = new Int2D(i, j);
-            	TWObject object = new TWObject();
-            	object.setLocation(pos);
-                objects[i][j] = new TWAgentPercept(object, 0);
-        	}
+    private static int radiusOf(List<Int2D> spiral) {
+        int radius = 0;
+        for (Int2D offset : spiral)
+            radius = Math.max(radius, Math.max(Math.abs(offset.x), Math.abs(offset.y)));
+        return radius;
+    }
+
+    private static int[] rankSpiral(List<Int2D> spiral, int spiralRadius) {
+        int side = 2 * spiralRadius + 1;
+        int[] spiralRank = new int[side * side];
+        java.util.Arrays.fill(spiralRank, -1);
+        for (int i = 0; i < spiral.size(); i++) {
+            Int2D offset = spiral.get(i);
+            int r = (offset.x + spiralRadius) * side + offset.y + spiralRadius;
+            if (spiralRank[r] < 0)
+                spiralRank[r] = i;
         }
-        this.schedule = schedule;
-        this.memoryGrid = new ObjectGrid2D(me.getEnvironment().getxDimension(), me.getEnvironment().getyDimension());
-        tilesAndHoles = new HashSet<Int2D>();
+        return spiralRank;
     }
 
     /**
@@ -108,18 +215,125 @@ public class TWAgentWorkingMemory {
     
     // Communication function
     public void addAgentPercept(TWAgentPercept percept){
-    	objects[percept.getO().getX()][percept.getO().getY()] = percept;
-        memoryGrid.set(percept.getO().getX(), percept.getO().getY(), percept.getO());
-        Int2D loc = new Int2D(percept.getO().getX(), percept.getO().getY());
-    	if(percept.getO() instanceof TWTile || percept.getO() instanceof TWHole)
-    		tilesAndHoles.add(loc);   
+    	addObject(percept.getO(), percept.getT());
+    }
+
+    private void addObject(TWEntity o, double time){
+    	int x = o.getX(), y = o.getY();
+    	int cell = x * height + y;
+    	byte oldKind = kindOf[cell];
+    	boolean wasBlocked = oldKind == OBSTACLE;
+    	byte kind = kindOf(o);
+    	kindOf[cell] = kind;
+    	seenAt[cell] = time;
+    	objectOf[cell] = kind == EMPTY ? null : o;
+    	if(wasBlocked != (kind == OBSTACLE))
+    		fireBlockedChanged(x, y, !wasBlocked);
+        memoryGrid.set(x, y, o);
+    	if(oldKind != kind)
+    	{
+    		if(isIndexed(oldKind))
+    			index.remove(x, y, oldKind);
+    		if(isIndexed(kind))
+    			index.add(x, y, kind);
+    	}
+    	if(decay != null && isIndexed(kind))
+    		decay.schedule(cell, time, getSimulationTime());
+    }
+
+    /**
+     * Called by the decay scheduler: forgets cell, unless it has been seen
+     * again since time or no longer holds an object. A forgotten cell is as
+     * if never seen.
+     */
+    void forget(int cell, double time){
+    	if(seenAt[cell] != time || !isIndexed(kindOf[cell]))
+    		return;
+    	clearCell(cell, 0);
+    }
+
+    /**
+     * Remembers cell as seen empty at time.
+     */
+    private void clearCell(int cell, double time){
+    	int x = cell / height, y = cell - x * height;
+    	byte kind = kindOf[cell];
+    	if(isIndexed(kind))
+    		index.remove(x, y, kind);
+    	kindOf[cell] = EMPTY;
+    	seenAt[cell] = time;
+    	objectOf[cell] = null;
+    	memoryGrid.set(x, y, null); //memorygrid is never really accessed much by us. 
+    	if(kind == OBSTACLE)
+    		fireBlockedChanged(x, y, false);
+    }
+
+    /**
+     * Takes from the given cells of other whatever was seen there more
+     * recently than we saw it, the latest observation of a cell wins.
+     */
+    void merge(TWAgentWorkingMemory other, int[] cells, int n){
+    	for(int i = 0; i < n; i++)
+    	{
+    		int cell = cells[i];
+    		double time = other.seenAt[cell];
+    		if(time <= seenAt[cell])
+    			continue;
+    		if(other.kindOf[cell] == EMPTY)
+    			clearCell(cell, time);
+    		else
+    			addObject(other.objectOf[cell], time);
+    	}
+    }
+
+    /**
+     * Hands the cells sensed since the last call to the team and starts a
+     * new batch.
+     */
+    private void publishChanges(){
+    	team.publish(this, changed, changedCount);
+    	for(int i = 0; i < changedCount; i++)
+    		isChanged[changed[i]] = false;
+    	changedCount = 0;
+    }
+
+    private void markChanged(int x, int y){
+    	int cell = x * height + y;
+    	if(!isChanged[cell])
+    	{
+    		isChanged[cell] = true;
+    		changed[changedCount++] = cell;
+    	}
+    }
+
+    private static boolean isIndexed(byte kind){
+    	return kind == TILE || kind == HOLE || kind == OBSTACLE;
+    }
+
+    /**
+     * An entity of exactly type TWObject is the placeholder percepts use for
+     * an empty cell.
+     */
+    private static byte kindOf(TWEntity o){
+    	if(o instanceof TWTile)
+    		return TILE;
+    	if(o instanceof TWHole)
+    		return HOLE;
+    	if(o instanceof TWObstacle)
+    		return OBSTACLE;
+    	if(o == null || o.getClass() == TWObject.class)
+    		return EMPTY;
+    	return OTHER;
     }
     
     public void updateMemory(Bag sensedObjects, IntBag objectXCoords, IntBag objectYCoords, Bag sensedAgents, IntBag agentXCoords, IntBag agentYCoords) {
         //reset the closest objects for new iteration of the loop (this is short
         //term observation memory if you like) It only lasts one timestep
         
-        clearMemoryInSensorRange(Parameters.defaultSensorRange);
+        if (decay != null) {
+            decay.expire(getSimulationTime(), this);
+        }
+        clearMemoryInSensorRange(me.getEnvironment().getConfig().getSensorRange());
 
         //must all be same size.
         assert (sensedObjects.size() == objectXCoords.size() && sensedObjects.size() == objectYCoords.size());
@@ -129,10 +343,49 @@ public class TWAgentWorkingMemory {
                 continue;
             }
             //Add the object to memory
-            addAgentPercept(new TWAgentPercept(o, this.getSimulationTime()));
+            addObject(o, this.getSimulationTime());
+        }
+        me.getEnvironment().getProfiler().count(TWProfiler.Counter.MEMORY_UPDATES, sensedObjects.size());
+        //every sensed cell was marked while clearing the sensor range
+        if (changed != null) {
+            publishChanges();
         }
     }
     
+    /**
+     * The sensor's update: reads every cell of objectGrid within range of
+     * x,y straight into memory, remembering it as seen now, either holding
+     * the object there or empty. Same result as updateMemory with the
+     * objects of that window, without building any bags.
+     */
+    void updateMemory(ObjectGrid2D objectGrid, int x, int y, int range) {
+        double now = this.getSimulationTime();
+        if (decay != null) {
+            decay.expire(now, this);
+        }
+        int x0 = Math.max(x - range, 0), x1 = Math.min(x + range, objectGrid.getWidth() - 1);
+        int y0 = Math.max(y - range, 0), y1 = Math.min(y + range, objectGrid.getHeight() - 1);
+        Object[][] field = objectGrid.field;
+        me.getEnvironment().getProfiler().count(TWProfiler.Counter.MEMORY_UPDATES, (x1 - x0 + 1) * (y1 - y0 + 1));
+        for (int i = x0; i <= x1; i++) {
+            Object[] column = field[i];
+            for (int j = y0; j <= y1; j++) {
+                Object o = column[j];
+                if (o instanceof TWObject) {
+                    addObject((TWEntity) o, now);
+                } else {
+                    clearCell(i * height + j, now);
+                }
+                if (changed != null) {
+                    markChanged(i, j);
+                }
+            }
+        }
+        if (changed != null) {
+            publishChanges();
+        }
+    }
+
     private void clearMemoryInSensorRange(int defaultsensorrange) {
 		for(int i = me.getX() - defaultsensorrange; i <= me.getX() + defaultsensorrange; i++)
 		{
@@ -141,19 +394,43 @@ public class TWAgentWorkingMemory {
 				if(!me.getEnvironment().isInBounds(i, j))
 					continue;
 				removeAgentPercept(i, j);
+				if(changed != null)
+					markChanged(i, j);
 			}
 		}
 	}
 
+    /**
+     * Remembers x,y as seen empty now.
+     */
     public void removeAgentPercept(int x, int y){
-    	Int2D loc = new Int2D(x, y);
-    	if(tilesAndHoles.contains(loc))
-    		tilesAndHoles.remove(loc);
-    	TWObject object = new TWObject();
-    	Int2D pos = new Int2D(x, y);
-    	object.setLocation(pos);
-        objects[x][y] = new TWAgentPercept(object, this.getSimulationTime());
-    	memoryGrid.set(x, y, null); //memorygrid is never really accessed much by us. 
+    	clearCell(x * height + y, this.getSimulationTime());
+    }
+
+    /**
+     * Registers a listener to be told when a remembered cell becomes blocked
+     * or free.
+     */
+    public void addBlockedCellListener(TWBlockedCellListener listener) {
+    	blockedCellListeners.add(listener);
+    }
+
+    public void removeBlockedCellListener(TWBlockedCellListener listener) {
+    	blockedCellListeners.remove(listener);
+    }
+
+    /**
+     * @return a counter that changes whenever a remembered obstacle appears
+     * or goes in region rx, ry (cells rx * REGION_SIZE.. by ry * REGION_SIZE..)
+     */
+    public int getRegionVersion(int rx, int ry) {
+    	return regionVersion[rx * regionRows + ry];
+    }
+
+    private void fireBlockedChanged(int x, int y, boolean blocked) {
+    	regionVersion[(x / REGION_SIZE) * regionRows + y / REGION_SIZE]++;
+    	for (int i = 0; i < blockedCellListeners.size(); i++)
+    		blockedCellListeners.get(i).cellBlockedChanged(x, y, blocked);
     }
 
     public void removeObject(TWEntity o){
@@ -185,9 +462,105 @@ public class TWAgentWorkingMemory {
         return (TWHole) this.getNearbyObject(x, y, threshold, TWHole.class);
     }
 
-    public HashSet<Int2D> getTilesAndHoles()
-    {
-    	return tilesAndHoles;
+    /**
+     * Fills into with the remembered objects of the given types (TWTile,
+     * TWHole, TWObstacle or TWObject for all three) inside the rectangle
+     * x0..x1, y0..y1, ordered by x and then y.
+     *
+     * @param maxAge only objects seen at most this many steps ago, -1 for any age
+     * @return into
+     */
+    public List<TWObject> getObjectsInRectangle(int x0, int y0, int x1, int y1, double maxAge,
+    		List<TWObject> into, Class<?>... types) {
+    	into.clear();
+    	int n = index.collect(kindMask(types), x0, y0, x1, y1, found, 0);
+    	java.util.Arrays.sort(found, 0, n);
+    	for (int i = 0; i < n; i++)
+    		if (isRecent(found[i], maxAge))
+    			into.add((TWObject) objectOf[found[i]]);
+    	return into;
+    }
+
+    /**
+     * As getObjectsInRectangle, for the objects at most radius moves
+     * (manhattan distance) from x,y.
+     */
+    public List<TWObject> getObjectsInRadius(int x, int y, int radius, double maxAge,
+    		List<TWObject> into, Class<?>... types) {
+    	getObjectsInRectangle(x - radius, y - radius, x + radius, y + radius, maxAge, into, types);
+    	for (int i = into.size() - 1; i >= 0; i--)
+    		if (Math.abs(into.get(i).getX() - x) + Math.abs(into.get(i).getY() - y) > radius)
+    			into.remove(i);
+    	return into;
+    }
+
+    /**
+     * Fills into with the (at most) k remembered objects of the given types
+     * closest to x,y by manhattan distance, nearest first.
+     *
+     * @param maxAge only objects seen at most this many steps ago, -1 for any age
+     * @return into, empty if k <= 0
+     */
+    public List<TWObject> getNearestObjects(int x, int y, int k, double maxAge,
+    		List<TWObject> into, Class<?>... types) {
+    	into.clear();
+    	if (k <= 0)
+    		return into;
+    	int mask = kindMask(types);
+    	int width = kindOf.length / height;
+    	int reach = Math.max(width, height);
+    	int n = 0;
+    	// grow a square around x,y until the k nearest are certainly inside it
+    	for (int r = TWMemoryIndex.BUCKET_SIZE; ; r *= 2) {
+    		n = index.collect(mask, x - r, y - r, x + r, y + r, found, 0);
+    		int m = 0;
+    		for (int i = 0; i < n; i++)
+    			if (isRecent(found[i], maxAge))
+    				found[m++] = found[i];
+    		n = m;
+    		sortByDistance(x, y, n);
+    		if (r >= reach || (n >= k && distance(x, y, found[k - 1]) <= r))
+    			break;
+    	}
+    	for (int i = 0; i < n && i < k; i++)
+    		into.add((TWObject) objectOf[found[i]]);
+    	return into;
+    }
+
+    /**
+     * Sorts the first n cells of found by distance from x,y, ties in x then y order.
+     */
+    private void sortByDistance(int x, int y, int n) {
+    	for (int i = 0; i < n; i++)
+    		foundByDistance[i] = ((long) distance(x, y, found[i]) << 32) | found[i];
+    	java.util.Arrays.sort(foundByDistance, 0, n);
+    	for (int i = 0; i < n; i++)
+    		found[i] = (int) foundByDistance[i];
+    }
+
+    private int distance(int x, int y, int cell) {
+    	int cx = cell / height;
+    	return Math.abs(cx - x) + Math.abs(cell - cx * height - y);
+    }
+
+    private boolean isRecent(int cell, double maxAge) {
+    	return maxAge < 0 || getSimulationTime() - seenAt[cell] <= maxAge;
+    }
+
+    /**
+     * @return bit (1 << kind) set for every indexed kind that is an instance of one of types
+     */
+    private static int kindMask(Class<?>... types) {
+    	int mask = 0;
+    	for (Class<?> type : types) {
+    		if (type.isAssignableFrom(TWTile.class))
+    			mask |= 1 << TILE;
+    		if (type.isAssignableFrom(TWHole.class))
+    			mask |= 1 << HOLE;
+    		if (type.isAssignableFrom(TWObstacle.class))
+    			mask |= 1 << OBSTACLE;
+    	}
+    	return mask;
     }
     
     
@@ -212,6 +585,11 @@ public class TWAgentWorkingMemory {
      */
     public TWObject getNearbyObject(int sx, int sy, double threshold, Class<?> type) {
 
+        int mask = kindMask(type);
+        if (mask != 0 && (type == TWTile.class || type == TWHole.class || type == TWObstacle.class)) {
+            return getNearbyIndexedObject(sx, sy, threshold, mask);
+        }
+
         //If we cannot find an object which we have seen recently then we want
         //the one with maxTimestamp
         double maxTimestamp = 0;
@@ -223,11 +601,11 @@ public class TWAgentWorkingMemory {
             x = offset.x + sx;
             y = offset.y + sy;
 
-            if (me.getEnvironment().isInBounds(x, y) && objects[x][y] != null) {
-                o = (TWObject) objects[x][y].getO();//get mem object
+            if (me.getEnvironment().isInBounds(x, y) && objectOf[x * height + y] != null) {
+                o = (TWObject) objectOf[x * height + y];//get mem object
                 if (type.isInstance(o)) {//if it's not the type we're looking for do nothing
 
-                    time = objects[x][y].getT();//get time of memory
+                    time = seenAt[x * height + y];//get time of memory
 
                     if (this.getSimulationTime() - time <= threshold) {
                         //if we found one satisfying time, then return
@@ -246,6 +624,41 @@ public class TWAgentWorkingMemory {
         //seen most recently but longer ago than now-threshold.
         return ret;
     }
+
+    /**
+     * getNearbyObject for a single indexed kind: only the remembered objects
+     * of that kind inside the spiral's square are looked at, and the spiral
+     * order is recovered from spiralRank, so the result is the same as
+     * walking the spiral.
+     */
+    private TWObject getNearbyIndexedObject(int sx, int sy, double threshold, int mask) {
+        int n = index.collect(mask, sx - spiralRadius, sy - spiralRadius, sx + spiralRadius, sy + spiralRadius, found, 0);
+        int side = 2 * spiralRadius + 1;
+        int recentRank = Integer.MAX_VALUE, recent = -1;
+        int olderRank = Integer.MAX_VALUE, older = -1;
+        double maxTimestamp = 0;
+        for (int i = 0; i < n; i++) {
+            int cell = found[i];
+            int x = cell / height, y = cell - x * height;
+            int rank = spiralRank[(x - sx + spiralRadius) * side + y - sy + spiralRadius];
+            if (rank < 0)
+                continue;
+            double time = seenAt[cell];
+            if (this.getSimulationTime() - time <= threshold) {
+                if (rank < recentRank) {
+                    recentRank = rank;
+                    recent = cell;
+                }
+            } else if (time > maxTimestamp || (time == maxTimestamp && older >= 0 && rank < olderRank)) {
+                maxTimestamp = time;
+                olderRank = rank;
+                older = cell;
+            }
+        }
+        if (recent >= 0)
+            return (TWObject) objectOf[recent];
+        return older >= 0 ? (TWObject) objectOf[older] : null;
+    }
     /**
      * Is the cell blocked according to our memory?
      * 
@@ -257,15 +670,14 @@ public class TWAgentWorkingMemory {
     public boolean isCellBlocked(int tx, int ty, int decay) {
     	if(!me.getEnvironment().isInBounds(tx, ty))
     		return true;
-        //no memory at all, so assume not blocked
-        if (objects[tx][ty] == null) {
+        int cell = tx * height + ty;
+        //is it an obstacle?
+        if (kindOf[cell] != OBSTACLE) {
             return false;
         }
-        if(decay >= 0 && me.getEnvironment().schedule.getTime() - objects[tx][ty].getT() >= decay)
+        if(decay >= 0 && me.getEnvironment().schedule.getTime() - seenAt[cell] >= decay)
         	return false;
-        TWEntity e = (TWEntity) objects[tx][ty].getO();
-        //is it an obstacle?
-        return (e instanceof TWObstacle);
+        return true;
     }
     
     public ObjectGrid2D getMemoryGrid()
@@ -274,13 +686,35 @@ public class TWAgentWorkingMemory {
     }
     
 
+    /**
+     * @return the object last seen at x,y, null if the cell was empty
+     */
     public TWEntity getObjectAt(int x, int y) {
-    	if(objects[x][y] == null)
-    		return null;
-		return objects[x][y].getO();
+		return objectOf[x * height + y];
 	}
-    
+
+    /**
+     * @return the time x,y was last seen (0 if never)
+     */
+    public double getTimeAt(int x, int y) {
+    	return seenAt[x * height + y];
+    }
+
+    /**
+     * Builds a percept for what we remember at x,y. For an empty cell the
+     * percept holds a plain TWObject placed at x,y, as sent between agents.
+     * Prefer getObjectAt and getTimeAt where a percept is not needed, they
+     * allocate nothing.
+     */
     public TWAgentPercept getPerceptAt(int x, int y) {
-		return objects[x][y];
+    	int cell = x * height + y;
+    	TWEntity o = objectOf[cell];
+    	if(o == null)
+    	{
+    		TWObject empty = new TWObject();
+    		empty.setLocation(new Int2D(x, y));
+    		o = empty;
+    	}
+		return new TWAgentPercept(o, seenAt[cell]);
 	}
 }
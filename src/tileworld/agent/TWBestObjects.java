@@ -0,0 +1,72 @@
+package tileworld.agent;
+
+import tileworld.environment.TWObject;
+
+/**
+ * TWBestObjects
+ *
+ * Description:
+ *
+ * The k objects of highest utility out of all those offered since the last
+ * clear, plus how many were offered. Stands in for a priority queue that is
+ * only ever peeked: offering is a few comparisons into a fixed array, with
+ * no heap to grow and nothing allocated. Of objects with equal utility the
+ * one offered first ranks higher.
+ */
+class TWBestObjects<T extends TWObject> {
+
+    private final TWObject[] best;
+    private int kept;
+    private int offered;
+
+    TWBestObjects(int k) {
+        best = new TWObject[k];
+    }
+
+    void clear() {
+        for (int i = 0; i < kept; i++) {
+            best[i] = null;
+        }
+        kept = 0;
+        offered = 0;
+    }
+
+    void add(T o) {
+        offered++;
+        double utility = o.getUtility();
+        int i = kept < best.length ? kept++ : best.length;
+        // shift the worse ones down, the last drops out when full
+        while (i > 0 && best[i - 1].getUtility() < utility) {
+            if (i < best.length) {
+                best[i] = best[i - 1];
+            }
+            i--;
+        }
+        if (i < best.length) {
+            best[i] = o;
+        }
+    }
+
+    /**
+     * @return the best object, null if none were offered
+     */
+    @SuppressWarnings("unchecked")
+    T peek() {
+        return (T) best[0];
+    }
+
+    /**
+     * @return the i-th best object, 0 <= i < Math.min(size(), k)
+     */
+    @SuppressWarnings("unchecked")
+    T get(int i) {
+        return (T) best[i];
+    }
+
+    /**
+     * @return number of objects offered since the last clear
+     */
+    int size() {
+        return offered;
+    }
+}
@@ -0,0 +1,24 @@
+package tileworld.agent;
+
+/**
+ * TWBlockedCellListener
+ *
+ * Description:
+ *
+ * Notified by TWAgentWorkingMemory whenever a remembered cell changes between
+ * blocked (contains an obstacle) and free. Incremental planners register
+ * themselves with the memory so they only need to repair the part of their
+ * search that the change affects.
+ *
+ * Note this reports what is stored in memory, ie the decay = -1 view of
+ * TWAgentWorkingMemory#isCellBlocked.
+ */
+public interface TWBlockedCellListener {
+
+    /**
+     * @param x x position of the cell
+     * @param y y position of the cell
+     * @param blocked true if the cell is now remembered as blocked
+     */
+    void cellBlockedChanged(int x, int y, boolean blocked);
+}
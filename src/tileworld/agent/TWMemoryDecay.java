@@ -0,0 +1,110 @@
+package tileworld.agent;
+
+import ec.util.MersenneTwisterFast;
+
+/**
+ * TWMemoryDecay
+ *
+ * Description:
+ *
+ * Decides when remembered objects are forgotten. At every step a memory of
+ * age a (in steps) is dropped with probability decay * a / maxTime, and any
+ * memory reaching maxTime is dropped for certain. Rather than rolling the
+ * dice for every memory on every step, the age at which a memory will be
+ * forgotten is drawn once, when it is stored, from the distribution those
+ * per-step probabilities give, and the memory goes into the age bucket of
+ * that step. Buckets form a ring of maxTime + 1 steps, so storing and
+ * expiring are both constant time.
+ *
+ * A cell seen again is simply scheduled again; the memory checks an expired
+ * entry's observation time against the cell's current one and ignores
+ * entries that are out of date.
+ */
+class TWMemoryDecay {
+
+    private final MersenneTwisterFast random;
+    /** survival[a] = probability a memory is still held at age a */
+    private final double[] survival;
+    /** ring of buckets, bucket of step t is t % ring length */
+    private final int[][] cells;
+    private final double[][] times;
+    private final int[] counts;
+    /** Last step whose bucket has been emptied */
+    private long expiredUpTo = 0;
+
+    TWMemoryDecay(int maxTime, double decay, MersenneTwisterFast random) {
+        this.random = random;
+        survival = new double[maxTime + 1];
+        survival[0] = 1;
+        for (int a = 1; a < maxTime; a++) {
+            survival[a] = survival[a - 1] * (1 - Math.min(1, decay * a / maxTime));
+        }
+        survival[maxTime] = 0;
+        cells = new int[maxTime + 1][];
+        times = new double[maxTime + 1][];
+        counts = new int[maxTime + 1];
+        for (int i = 0; i <= maxTime; i++) {
+            cells[i] = new int[16];
+            times[i] = new double[16];
+        }
+    }
+
+    /**
+     * Schedules cell, observed at seenAt, to be forgotten.
+     *
+     * @param now current step, the earliest expiry is the next step
+     */
+    void schedule(int cell, double seenAt, double now) {
+        long expiry = (long) seenAt + lifetime();
+        if (expiry <= (long) now) {
+            expiry = (long) now + 1;
+        }
+        int b = (int) (expiry % counts.length);
+        int n = counts[b];
+        if (n == cells[b].length) {
+            int[] biggerCells = new int[n * 2];
+            double[] biggerTimes = new double[n * 2];
+            System.arraycopy(cells[b], 0, biggerCells, 0, n);
+            System.arraycopy(times[b], 0, biggerTimes, 0, n);
+            cells[b] = biggerCells;
+            times[b] = biggerTimes;
+        }
+        cells[b][n] = cell;
+        times[b][n] = seenAt;
+        counts[b] = n + 1;
+    }
+
+    /**
+     * Empties the buckets of every step up to now, handing each entry (cell
+     * and the observation time it was scheduled with) to memory.
+     */
+    void expire(double now, TWAgentWorkingMemory memory) {
+        long last = (long) now;
+        // a ring's worth of steps covers every pending entry
+        if (last - expiredUpTo > counts.length) {
+            expiredUpTo = last - counts.length;
+        }
+        while (expiredUpTo < last) {
+            expiredUpTo++;
+            int b = (int) (expiredUpTo % counts.length);
+            int[] due = cells[b];
+            double[] seen = times[b];
+            for (int i = 0; i < counts[b]; i++) {
+                memory.forget(due[i], seen[i]);
+            }
+            counts[b] = 0;
+        }
+    }
+
+    /**
+     * @return age at which a new memory will be forgotten, 1..maxTime
+     */
+    private int lifetime() {
+        double u = random.nextDouble();
+        int a = 1;
+        while (survival[a] > u) {
+            a++;
+        }
+        return a;
+    }
+}
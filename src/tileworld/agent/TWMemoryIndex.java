@@ -0,0 +1,121 @@
+package tileworld.agent;
+
+/**
+ * TWMemoryIndex
+ *
+ * Description:
+ *
+ * Spatial index of the tiles, holes and obstacles held in a working memory.
+ * The map is cut into square buckets of BUCKET_SIZE cells and every bucket
+ * keeps, per kind of object, a list of the remembered cells (x * height + y)
+ * in it. A rectangle query only visits the buckets overlapping the
+ * rectangle, and only the lists of the kinds asked for.
+ *
+ * Kinds are the TILE, HOLE and OBSTACLE codes of TWAgentWorkingMemory; a
+ * query takes a bit mask with bit (1 << kind) set for each wanted kind.
+ */
+class TWMemoryIndex {
+
+    static final int BUCKET_SIZE = 8;
+    private static final int KINDS = 4;
+
+    private final int width;
+    private final int height;
+    private final int bucketsX;
+    private final int bucketsY;
+    /** cells[kind][bucket] holds counts[kind][bucket] cell indices */
+    private final int[][][] cells;
+    private final int[][] counts;
+    /** Position of each indexed cell within its bucket list */
+    private final int[] positionOf;
+
+    TWMemoryIndex(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.bucketsX = (width + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        this.bucketsY = (height + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        this.cells = new int[KINDS][bucketsX * bucketsY][];
+        this.counts = new int[KINDS][bucketsX * bucketsY];
+        this.positionOf = new int[width * height];
+    }
+
+    /**
+     * Adds cell x,y under kind. The cell must not be indexed already.
+     */
+    void add(int x, int y, int kind) {
+        int bucket = bucketOf(x, y);
+        int[] list = cells[kind][bucket];
+        int n = counts[kind][bucket];
+        if (list == null) {
+            list = cells[kind][bucket] = new int[4];
+        } else if (n == list.length) {
+            int[] bigger = new int[n * 2];
+            System.arraycopy(list, 0, bigger, 0, n);
+            list = cells[kind][bucket] = bigger;
+        }
+        int cell = x * height + y;
+        list[n] = cell;
+        positionOf[cell] = n;
+        counts[kind][bucket] = n + 1;
+    }
+
+    /**
+     * Removes cell x,y, which must be indexed under kind.
+     */
+    void remove(int x, int y, int kind) {
+        int bucket = bucketOf(x, y);
+        int[] list = cells[kind][bucket];
+        int last = list[--counts[kind][bucket]];
+        int i = positionOf[x * height + y];
+        list[i] = last;
+        positionOf[last] = i;
+    }
+
+    /**
+     * Appends to out every indexed cell of the kinds in kindMask lying in
+     * the rectangle x0..x1, y0..y1 (inclusive, clipped to the map), in no
+     * particular order.
+     *
+     * @return the new number of cells in out
+     */
+    int collect(int kindMask, int x0, int y0, int x1, int y1, int[] out, int n) {
+        x0 = Math.max(x0, 0);
+        y0 = Math.max(y0, 0);
+        x1 = Math.min(x1, width - 1);
+        y1 = Math.min(y1, height - 1);
+        if (x0 > x1 || y0 > y1) {
+            return n;
+        }
+        int bx1 = x1 / BUCKET_SIZE, by1 = y1 / BUCKET_SIZE;
+        for (int kind = 0; kind < KINDS; kind++) {
+            if ((kindMask & (1 << kind)) == 0) {
+                continue;
+            }
+            for (int bx = x0 / BUCKET_SIZE; bx <= bx1; bx++) {
+                for (int by = y0 / BUCKET_SIZE; by <= by1; by++) {
+                    int bucket = bx * bucketsY + by;
+                    int count = counts[kind][bucket];
+                    int[] list = cells[kind][bucket];
+                    // buckets entirely inside the rectangle need no test
+                    boolean inside = bx * BUCKET_SIZE >= x0 && (bx + 1) * BUCKET_SIZE - 1 <= x1
+                            && by * BUCKET_SIZE >= y0 && (by + 1) * BUCKET_SIZE - 1 <= y1;
+                    for (int i = 0; i < count; i++) {
+                        int cell = list[i];
+                        if (!inside) {
+                            int cx = cell / height, cy = cell - cx * height;
+                            if (cx < x0 || cx > x1 || cy < y0 || cy > y1) {
+                                continue;
+                            }
+                        }
+                        out[n++] = cell;
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+    private int bucketOf(int x, int y) {
+        return (x / BUCKET_SIZE) * bucketsY + y / BUCKET_SIZE;
+    }
+}
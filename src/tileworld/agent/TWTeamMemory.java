@@ -0,0 +1,65 @@
+package tileworld.agent;
+
+import java.util.ArrayList;
+
+/**
+ * TWTeamMemory
+ *
+ * Description:
+ *
+ * Decides how the working memories of the agents of one environment relate.
+ *
+ * PRIVATE: every agent has its own memory and learns from the others only
+ * through messages.
+ *
+ * SHARED: one blackboard for the whole team. The first memory created holds
+ * the map, later ones share it and keep only their agent, so there is a
+ * single full-map copy however many agents there are, and whatever one agent
+ * senses the others know at once. Each cell keeps the time it was last seen,
+ * the latest observation is what is remembered.
+ *
+ * DELTA: every agent keeps its own memory, but after sensing it sends the
+ * cells it has just sensed to the other memories of the team as one batch.
+ * A cell is only taken if it is newer than what the receiver remembers.
+ *
+ * The mode is the environment's teamMemory setting, see EnvironmentConfig.
+ */
+public class TWTeamMemory {
+
+    public enum Mode {
+        PRIVATE, SHARED, DELTA
+    }
+
+    private final Mode mode;
+    private final ArrayList<TWAgentWorkingMemory> members = new ArrayList<TWAgentWorkingMemory>();
+
+    public TWTeamMemory(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Adds a new memory to the team.
+     *
+     * @return the memory whose map it should share, null if it keeps its own
+     */
+    TWAgentWorkingMemory join(TWAgentWorkingMemory memory) {
+        TWAgentWorkingMemory shared = mode == Mode.SHARED && !members.isEmpty() ? members.get(0) : null;
+        members.add(memory);
+        return shared;
+    }
+
+    /**
+     * Merges the given cells of from into every other memory of the team.
+     */
+    void publish(TWAgentWorkingMemory from, int[] cells, int n) {
+        for (int i = 0; i < members.size(); i++) {
+            if (members.get(i) != from) {
+                members.get(i).merge(from, cells, n);
+            }
+        }
+    }
+}
@@ -13,7 +13,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
-import java.util.PriorityQueue;
 import java.util.Random;
 
 import javax.rmi.CORBA.Util;
@@ -21,20 +20,31 @@ import javax.rmi.CORBA.Util;
 import practicalreasoning.Intention;
 import practicalreasoning.IntentionType;
 import practicalreasoning.TWPlan;
-import practicalreasoning.UtilityParams;
+import practicalreasoning.UtilityKernel;
+import practicalreasoning.UtilityParam;
+import practicalreasoning.UtilityParamVector;
 import sim.util.Int2D;
 import tileworld.Parameters;
+import tileworld.TWLog;
+import tileworld.TWLog.Event;
+import tileworld.TWLog.Level;
 import tileworld.environment.TWDirection;
 import tileworld.environment.TWEntity;
 import tileworld.environment.TWEnvironment;
 import tileworld.environment.TWHole;
 import tileworld.environment.TWObject;
 import tileworld.environment.TWObstacle;
+import tileworld.environment.TWProfiler;
 import tileworld.environment.TWTile;
 import tileworld.exceptions.CellBlockedException;
 import tileworld.planners.AstarPathGenerator;
+import tileworld.planners.DStarLitePlanner;
+import tileworld.planners.FloodPathGenerator;
+import tileworld.planners.HierarchicalPathGenerator;
+import tileworld.planners.RealTimePathGenerator;
+import tileworld.planners.TWDistanceField;
 import tileworld.planners.TWPath;
-import tileworld.planners.TWPathStep;
+import tileworld.planners.TWPathCache;
 import tileworld.planners.TWRefuelPathGenerator;
 import communication.*;
 
@@ -55,12 +65,32 @@ import communication.*;
 public class UtilityAgent2 extends TWAgent{
 	private static final long serialVersionUID = 1L;
 	private static boolean pathLengthAdjustment = true;
-	private HashMap<String, Double> parameters; // not to be confused with a parameter object
-	private PriorityQueue<TWHole> holes;
-	private PriorityQueue<TWTile> tiles;
+	private static boolean batchedPathSearch = true; // one flood per step instead of one A* per candidate
+	private static boolean pathCaching = true; // reuse the rest of last step's candidate paths while they stay valid
+	private static boolean incrementalReplanning = false; // repair explore paths with D* Lite instead of fresh A*
+	private static boolean reachableFuelDistance = false; // fuel utility from moves around remembered obstacles, scores lower as they go stale
+	private static int hierarchicalMinCells = 250000; // explore with HPA* on maps of at least this many cells (500x500)
+	private UtilityParamVector params; // not to be confused with a parameter object
+	private static final int BEST_KEPT = 3;
+	/** Best holes and tiles found by computeUtilities */
+	private TWBestObjects<TWHole> holes = new TWBestObjects<TWHole>(BEST_KEPT);
+	private TWBestObjects<TWTile> tiles = new TWBestObjects<TWTile>(BEST_KEPT);
+	/** Utility of each candidate before neighbours are counted, by x * yEnv + y, reused every step */
+	private double[] baseUtility;
+	/** Tabulated utility arithmetic, see UtilityKernel */
+	private UtilityKernel kernel;
 	private TWPlan currentPlan = null;
 	private Intention currIntention = null;
 	private AstarPathGenerator pathGenerator;
+	private FloodPathGenerator pathFlood;
+	private TWPathCache pathCache;
+	private DStarLitePlanner explorePlanner;
+	private HierarchicalPathGenerator hierarchicalPlanner;
+	private RealTimePathGenerator realTimePlanner;
+	private ArrayList<Int2D> pathTargets = new ArrayList<Int2D>();
+	/** Remembered tiles and holes, and the ones near a candidate, reused by computeUtilities */
+	private ArrayList<TWObject> candidates = new ArrayList<TWObject>();
+	private ArrayList<TWObject> neighbours = new ArrayList<TWObject>();
 	private TWRefuelPathGenerator fuelPathGen;
 	private LinkedList<Int2D> mySnaps, otherSnaps;
 	private boolean intentionChanged = false;
@@ -84,10 +114,26 @@ public class UtilityAgent2 extends TWAgent{
 	//private ReactivePathGenerator reactivePathGen;
 	private String name;
 	public UtilityAgent2(String name, int xpos, int ypos, TWEnvironment env, double fuelLevel, HashMap<String, Double> parameters) {
+		this(name, xpos, ypos, env, fuelLevel, UtilityParamVector.fromMap(parameters));
+	}
+
+	public UtilityAgent2(String name, int xpos, int ypos, TWEnvironment env, double fuelLevel, UtilityParamVector params) {
 		super(xpos,ypos,env,fuelLevel);
 		pathGenerator = new AstarPathGenerator(env, this, Integer.MAX_VALUE);
+		pathFlood = new FloodPathGenerator(env, this);
+		if(pathCaching)
+			pathCache = new TWPathCache(env, getMemory());
+		if(incrementalReplanning)
+			explorePlanner = new DStarLitePlanner(env, this);
+		if(env.getxDimension() * env.getyDimension() >= hierarchicalMinCells)
+			hierarchicalPlanner = new HierarchicalPathGenerator(env, this, 2 * env.getConfig().getSensorRange() + 1);
+		//explore with RTAA* when the environment sets a per step budget (realTimeExpansions, realTimeNanos)
+		int expansions = env.getConfig().getRealTimeExpansions();
+		long nanos = env.getConfig().getRealTimeNanos();
+		if(expansions > 0 || nanos > 0)
+			realTimePlanner = new RealTimePathGenerator(env, this, expansions > 0 ? expansions : Integer.MAX_VALUE, nanos);
 		fuelPathGen = new TWRefuelPathGenerator(this);
-		this.parameters = parameters;
+		this.params = params;
 		this.name = name;
 		this.mySnaps = new LinkedList<Int2D>();
 		this.otherSnaps = new LinkedList<Int2D>();
@@ -107,7 +153,7 @@ public class UtilityAgent2 extends TWAgent{
 		if(mySnaps.size() == 0 || !mySnaps.peekFirst().equals(snap))
 		{
 			mySnaps.addFirst(snap);
-			if(mySnaps.size() > parameters.get(UtilityParams.LENGTH_SNAPS))
+			if(mySnaps.size() > params.get(UtilityParam.LENGTH_SNAPS))
 				mySnaps.removeLast();
 		}
 		//store other agents locations
@@ -115,7 +161,7 @@ public class UtilityAgent2 extends TWAgent{
 		if(otherSnaps.size() == 0 || !otherSnaps.peekFirst().equals(snap))
 		{
 			otherSnaps.addFirst(snap);
-			if(otherSnaps.size() > parameters.get(UtilityParams.LENGTH_SNAPS))
+			if(otherSnaps.size() > params.get(UtilityParam.LENGTH_SNAPS))
 				otherSnaps.removeLast();
 		}
 
@@ -125,7 +171,7 @@ public class UtilityAgent2 extends TWAgent{
 			return new TWThought(TWAction.PICKUP, null);
 		if(hasTile() && current instanceof TWHole)
 			return new TWThought(TWAction.PUTDOWN, null);
-		if(x == getEnvironment().getFuelingStation().getX() && y == getEnvironment().getFuelingStation().getY() && getFuelLevel() != Parameters.defaultFuelLevel)
+		if(x == getEnvironment().getFuelingStation().getX() && y == getEnvironment().getFuelingStation().getY() && getFuelLevel() != getEnvironment().getConfig().getFuelLevel())
 			return new TWThought(TWAction.REFUEL, null);
 		if(surrounded())
 			return new TWThought(null, null);
@@ -155,16 +201,8 @@ public class UtilityAgent2 extends TWAgent{
 				intentionChanged = true;
 			}
 		}
-		if(true )//debug
-		{
-			System.out.print(name + " ");
-			System.out.println(currIntention);
-			if(currentPlan.peek().getAction()!=null)
-				System.out.println("Current plan's next action is" + currentPlan.peek());
-			else System.out.println("Current Plan is to wait");
-			System.out.println(this.getScore());
-			System.out.println(this.getFuelLevel());
-		}
+		if(TWLog.on(Level.DEBUG))
+			TWLog.log(Level.DEBUG, Event.THINK, getEnvironment().schedule.getTime(), name, getScore(), (int) getFuelLevel(), currIntention.getIntentionType());
 
 		return currentPlan.next();
 	}
@@ -217,11 +255,11 @@ public class UtilityAgent2 extends TWAgent{
 			// Agents sends its message
 			sendMsg();
 		}  catch (CellBlockedException ex) {
-			ex.printStackTrace();
+			TWLog.log(Level.WARN, Event.ERROR, getEnvironment().schedule.getTime(), name, x, y, ex);
 		}
 	}
 	private void receiveMsg(){
-		this.msgReceived = PostBox.get(this.name);
+		this.msgReceived = getEnvironment().getPostBox().get(this.name);
 		// put message into internal memory
 		if(msgReceived != null){
 			//System.out.println("We have received a message");
@@ -236,7 +274,7 @@ public class UtilityAgent2 extends TWAgent{
 				loctargety = msgReceived.getY2();
 				//System.out.println("We have received the other's target");
 				if(currIntention != null &&currIntention.getIntentionType() != IntentionType.REFUEL && loctargetx == currIntention.getLocation().getX() && loctargety == currIntention.getLocation().getY()){
-					if(true)System.out.println("INTENTION CLASH - LOCTARGETX,Y = " + loctargetx + "," + loctargety + "Our intention = " + currIntention.getLocation());
+					TWLog.log(Level.DEBUG, Event.INTENTION_CLASH, getEnvironment().schedule.getTime(), name, loctargetx, loctargety, currIntention.getIntentionType());
 				}
 			}
 
@@ -911,8 +949,6 @@ public class UtilityAgent2 extends TWAgent{
 		}
 		if(this.currIntention.getIntentionType().equals(IntentionType.REFUEL))
 		{
-			if(true)
-				System.out.println("Entering refuel");
 			TWEntity tile;
 			TWEntity hole;
 			TWEntity respx;
@@ -943,7 +979,8 @@ public class UtilityAgent2 extends TWAgent{
 			}
 		}
 		flag=false;
-		PostBox.put(this.name, msg);
+		getEnvironment().getPostBox().put(this.name, msg);
+		getEnvironment().getProfiler().count(TWProfiler.Counter.MESSAGES);
 
 	}
 
@@ -953,8 +990,8 @@ public class UtilityAgent2 extends TWAgent{
 		return name;
 	}
 
-	public HashMap<String, Double> getParameters(){
-		return this.parameters;
+	public UtilityParamVector getParameters(){
+		return this.params;
 	}
 
 	private boolean impossible(TWPlan currentPlan) {
@@ -969,11 +1006,13 @@ public class UtilityAgent2 extends TWAgent{
 		double fuelLevel = getFuelLevel();
 		if((Parameters.endTime - getEnvironment().schedule.getTime()) <= fuelLevel)
 			return 0;
-		double bufferFuelDeviation = (x + y)*parameters.get(UtilityParams.BUFFER_RATIO); 
+		double bufferFuelDeviation = (x + y)*params.get(UtilityParam.BUFFER_RATIO); 
 		double distance = getDistanceTo(getEnvironment().getFuelingStation()); //nothing has been changed after this. 
+		if(reachableFuelDistance && fuelPathGen.getStationDistance(x, y) != TWDistanceField.UNREACHABLE)
+			distance = fuelPathGen.getStationDistance(x, y);
 		//		//reactive
 		double utility =  normalDistribution(100, 0, bufferFuelDeviation, fuelLevel - distance);
-		if(x + y <= Parameters.defaultSensorRange * 2 && fuelLevel/Parameters.defaultFuelLevel <= 0.5)
+		if(x + y <= getEnvironment().getConfig().getSensorRange() * 2 && fuelLevel/getEnvironment().getConfig().getFuelLevel() <= 0.5)
 			return Math.max(utility, 70.0);
 		return utility;
 		//		System.out.println("Distance " + distance + " Buffer fuel " + bufferFuel + "  Fuel " + fuelLevel + " utility " + val); //test code. 
@@ -981,47 +1020,71 @@ public class UtilityAgent2 extends TWAgent{
 
 	public void computeUtilities()
 	{	
-		this.holes = new PriorityQueue<TWHole>();
-		this.tiles = new PriorityQueue<TWTile>();
+		holes.clear();
+		tiles.clear();
 		int xEnv = getEnvironment().getxDimension();
 		int yEnv = getEnvironment().getyDimension();
-		Double[][] utilities = new Double[xEnv][yEnv];
-		int maxDistance = xEnv + yEnv;
-		HashSet<Int2D> locations = getMemory().getTilesAndHoles();
-		for(Int2D loc: locations)
+		if(baseUtility == null)
+		{
+			baseUtility = new double[xEnv * yEnv];
+			kernel = new UtilityKernel(xEnv + yEnv);
+		}
+		//only the candidates' cells are written and read, so nothing needs clearing
+		double[] utilities = baseUtility;
+		kernel.resolve(params);
+		double threshold = params.get(UtilityParam.THRESHOLD_EXPLORE);
+		double now = getEnvironment().schedule.getTime();
+		getMemory().getObjectsInRectangle(0, 0, xEnv - 1, yEnv - 1, -1, candidates, TWTile.class, TWHole.class);
+		for(TWObject currObj: candidates)
 		{
-			TWAgentPercept percept = getMemory().getPerceptAt(loc.x,  loc.y);
-			TWObject currObj = (TWObject) percept.getO();
-			if(!(currObj instanceof TWTile || currObj instanceof TWHole))
-				continue;
-			double time = percept.getT();
-			double distance = getDistanceTo(currObj);		
-			double howOld = getEnvironment().schedule.getTime() - time;
 			int i = currObj.getX();
 			int j = currObj.getY();
-			double decayMultiplier = normalDistribution(1, 0, parameters.get(UtilityParams.DEVIATION_MEM_DECAY), howOld);
+			int distance = Math.abs(i - x) + Math.abs(j - y);
+			int howOld = (int) (now - getMemory().getTimeAt(i, j));
 			if(currObj instanceof TWTile)
-				utilities[i][j] = normalDistribution(100, 0, parameters.get(UtilityParams.DEVIATION_TILES), (distance/maxDistance)) * decayMultiplier;
-			if(currObj instanceof TWHole)
-				utilities[i][j] = normalDistribution(100, 0, parameters.get(UtilityParams.DEVIATION_HOLES), (distance/maxDistance)) * decayMultiplier;
-			currObj.setUtility(utilities[i][j]); //maintain a copy of utility
+				utilities[i * yEnv + j] = kernel.tileUtility(distance, howOld);
+			else
+				utilities[i * yEnv + j] = kernel.holeUtility(distance, howOld);
+			currObj.setUtility(utilities[i * yEnv + j]); //maintain a copy of utility
 		}
-		int xSearchLimit = parameters.get(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_X).intValue();
-		int ySearchLimit = parameters.get(UtilityParams.NEIGHBOUR_SEARCH_LIMIT_Y).intValue();
-		for(Int2D loc: locations)
+		int xSearchLimit = (int) params.get(UtilityParam.NEIGHBOUR_SEARCH_LIMIT_X);
+		int ySearchLimit = (int) params.get(UtilityParam.NEIGHBOUR_SEARCH_LIMIT_Y);
+		int decay = (int) params.get(UtilityParam.DECAY_MEMORY_AFTER);
+		if(pathLengthAdjustment && batchedPathSearch)
+		{
+			//every candidate shares our location as the source, so flood once for all of them not cached
+			pathTargets.clear();
+			for(TWObject currObj: candidates)
+			{
+				if(utilities[currObj.getX() * yEnv + currObj.getY()] < threshold)
+					continue;
+				currObj.setPathTo(pathCache == null ? null : pathCache.get(x, y, currObj.getX(), currObj.getY(), decay));
+				if(currObj.getPathTo() == null)
+					pathTargets.add(new Int2D(currObj.getX(), currObj.getY()));
+			}
+			if(!pathTargets.isEmpty())
+				pathFlood.flood(this.x, this.y, decay, pathTargets);
+		}
+		for(TWObject currObj: candidates)
 		{
-			TWAgentPercept percept = getMemory().getPerceptAt(loc.x,  loc.y);
-			TWObject currObj = (TWObject) percept.getO();
-			if(!(currObj instanceof TWTile || currObj instanceof TWHole))
-				continue;
 			int i = currObj.getX();
 			int j = currObj.getY();
 
-			if(utilities[i][j] < parameters.get(UtilityParams.THRESHOLD_EXPLORE))
+			if(utilities[i * yEnv + j] < threshold)
 				continue;
 			if(pathLengthAdjustment)
 			{
-				currObj.setPathTo(pathGenerator.findPath(this.x, this.y, i, j, parameters.get(UtilityParams.DECAY_MEMORY_AFTER).intValue()));				
+				if(batchedPathSearch)
+				{
+					if(currObj.getPathTo() == null)
+					{
+						currObj.setPathTo(pathFlood.getPath(i, j));
+						if(pathCache != null)
+							pathCache.put(i, j, decay, currObj.getPathTo());
+					}
+				}
+				else
+					currObj.setPathTo(pathGenerator.findPath(this.x, this.y, i, j, decay));
 				if(currObj.getPathTo() == null)
 				{
 					currObj.setUtility(0.0);
@@ -1029,21 +1092,27 @@ public class UtilityAgent2 extends TWAgent{
 				}
 			}
 			// search nearby instead of searching the entire target array
-			for(int k = i - xSearchLimit; k < i + xSearchLimit; k++)
+			getMemory().getObjectsInRectangle(i - xSearchLimit, j - ySearchLimit, i + xSearchLimit - 1, j + ySearchLimit - 1, -1, neighbours, TWTile.class, TWHole.class);
+			//combining is adding in the kernel's combined space, so sum there and convert back once
+			double combined = kernel.toCombined(currObj.getUtility());
+			boolean combinedAny = false;
+			for(TWObject neighbour: neighbours)
 			{
-				for(int l = j - ySearchLimit; l < j + ySearchLimit; l++)
-				{
-					if((i == k && j == l) || !getEnvironment().isValidLocation(k, l) || utilities[k][l] == null)
-						continue;
-					double distance = getEnvironment().getDistance(i, j, k, l);
+				int k = neighbour.getX();
+				int l = neighbour.getY();
+				if(i == k && j == l)
+					continue;
+				int distance = Math.abs(k - i) + Math.abs(l - j);
 
-					//use utility from the unmodified utility array
-					double neightbourUtility = normalDistribution(utilities[k][l], 0, parameters.get(UtilityParams.DEVIATION_NEIGHBOUR), distance / maxDistance);
+				//use utility from the unmodified utility array
+				double neightbourUtility = kernel.neighbourUtility(utilities[k * yEnv + l], distance);
 
-					//update the object utility
-					currObj.setUtility(combineUtilities(currObj.getUtility(), neightbourUtility));
-				}
+				combined += kernel.toCombined(neightbourUtility);
+				combinedAny = true;
 			}
+			//update the object utility
+			if(combinedAny)
+				currObj.setUtility(kernel.fromCombined(combined));
 			double pathFactor = 0;
 			//add adjustment for the expected path length
 			if(pathLengthAdjustment)				
@@ -1080,11 +1149,11 @@ public class UtilityAgent2 extends TWAgent{
 		switch(numberOfCarriedTiles())
 		{
 		case 0:
-			return tiles.peek().getUtility() * parameters.get(UtilityParams.PICKUP_ZERO_TILES);
+			return tiles.peek().getUtility() * params.get(UtilityParam.PICKUP_ZERO_TILES);
 		case 1:
-			return tiles.peek().getUtility() * parameters.get(UtilityParams.PICKUP_ONE_TILES);
+			return tiles.peek().getUtility() * params.get(UtilityParam.PICKUP_ONE_TILES);
 		case 2:
-			return tiles.peek().getUtility() * parameters.get(UtilityParams.PICKUP_TWO_TILES);
+			return tiles.peek().getUtility() * params.get(UtilityParam.PICKUP_TWO_TILES);
 		default:
 			return 0;
 		}
@@ -1099,11 +1168,11 @@ public class UtilityAgent2 extends TWAgent{
 		switch(numberOfCarriedTiles())
 		{
 		case 3:
-			return holes.peek().getUtility() * parameters.get(UtilityParams.PUTDOWN_THREE_TILES);
+			return holes.peek().getUtility() * params.get(UtilityParam.PUTDOWN_THREE_TILES);
 		case 2:
-			return holes.peek().getUtility() * parameters.get(UtilityParams.PUTDOWN_TWO_TILES);
+			return holes.peek().getUtility() * params.get(UtilityParam.PUTDOWN_TWO_TILES);
 		case 1:
-			return holes.peek().getUtility() * parameters.get(UtilityParams.PUTDOWN_ONE_TILE);
+			return holes.peek().getUtility() * params.get(UtilityParam.PUTDOWN_ONE_TILE);
 		default:
 			return 0;
 		}
@@ -1112,7 +1181,7 @@ public class UtilityAgent2 extends TWAgent{
 
 	private HashMap<IntentionType, Double> options() {
 		HashMap<IntentionType, Double> utilities = new HashMap<IntentionType, Double>();
-		double sticky = parameters.get(UtilityParams.UTILITY_STICKY);
+		double sticky = params.get(UtilityParam.UTILITY_STICKY);
 		IntentionType curInt = currIntention == null? IntentionType.OTHER: currIntention.getIntentionType();
 		utilities.put(IntentionType.REFUEL, Math.min(100, fueling() + (curInt.equals(IntentionType.REFUEL)? sticky: 0)));
 		utilities.put(IntentionType.PICKUPTILE, Math.min(100, pickUpTile() + (curInt.equals(IntentionType.PICKUPTILE)? sticky: 0)));
@@ -1123,7 +1192,7 @@ public class UtilityAgent2 extends TWAgent{
 	private Intention filter(HashMap<IntentionType, Double> utilities) {
 		boolean explore = true;
 		IntentionType curInt = currIntention == null? IntentionType.OTHER: currIntention.getIntentionType();
-		double threshold = parameters.get(UtilityParams.THRESHOLD_EXPLORE) + (curInt.equals(IntentionType.EXPLORE)? parameters.get(UtilityParams.UTILITY_STICKY): 0);
+		double threshold = params.get(UtilityParam.THRESHOLD_EXPLORE) + (curInt.equals(IntentionType.EXPLORE)? params.get(UtilityParam.UTILITY_STICKY): 0);
 		for(Double value: utilities.values())
 		{
 			if(value > threshold)
@@ -1132,7 +1201,7 @@ public class UtilityAgent2 extends TWAgent{
 		if (explore)
 		{
 			if(this.currIntention != null && currIntention.getIntentionType().equals(IntentionType.REFUEL) && 
-					this.fuelLevel != Parameters.defaultFuelLevel)
+					this.fuelLevel != getEnvironment().getConfig().getFuelLevel())
 				return currIntention;
 			else{
 				Int2D location = getExploreLocation();
@@ -1159,7 +1228,6 @@ public class UtilityAgent2 extends TWAgent{
 	}
 
 	private TWPlan plan(Intention intention) {
-		LinkedList<TWThought> thoughts = new LinkedList<TWThought>();			//
 		//
 		//This is where we should use different pathgenerators based on which intention we have.
 		//And make sure that we don't return null values.
@@ -1169,7 +1237,14 @@ public class UtilityAgent2 extends TWAgent{
 		{
 		case EXPLORE:
 			// we pass 1 as decay, because we only want to consider the obstacles in the current sensor range
-			path = pathGenerator.findPath(x, y, intention.getLocation().x, intention.getLocation().y, 1);
+			if(hierarchicalPlanner != null) //big map, path into the next cluster towards the location, uses all remembered obstacles
+				path = hierarchicalPlanner.findPath(x, y, intention.getLocation().x, intention.getLocation().y);
+			else if(incrementalReplanning) //repairs the previous search when only obstacles changed, uses all remembered obstacles
+				path = explorePlanner.findPath(x, y, intention.getLocation().x, intention.getLocation().y);
+			else if(realTimePlanner != null) //bounded search, may only lead towards the location, planned again when it runs out
+				path = realTimePlanner.findPath(x, y, intention.getLocation().x, intention.getLocation().y, 1);
+			else
+				path = pathGenerator.findPath(x, y, intention.getLocation().x, intention.getLocation().y, 1);
 			break;
 		case FILLHOLE:
 			path = holes.peek().getPathTo();
@@ -1179,21 +1254,18 @@ public class UtilityAgent2 extends TWAgent{
 			break;
 		case REFUEL:
 			path = fuelPathGen.generateRefuelPath();
-			if(true)
-			{	
-				if(path == null) //test code
-					System.out.print("No path available");
-				else {
-					for (int z = 0; z<path.size(); z++)
-					{
-						System.out.print(path.getStep(z).getDirection());
-					}
-					break;
-				} //end of test code
+			if(path == null)
+				TWLog.log(Level.DEBUG, Event.NO_REFUEL_PATH, getEnvironment().schedule.getTime(), name, x, y, null);
+			else if(TWLog.on(Level.TRACE))
+			{
+				for (int z = 0; z<path.size(); z++)
+					TWLog.log(Level.TRACE, Event.REFUEL_PATH, getEnvironment().schedule.getTime(), name, x, y, path.getDirection(z));
 			}
+			break;
 		}
 		if(path == null || !path.hasNext())
 		{
+			LinkedList<TWThought> thoughts = new LinkedList<TWThought>();
 			switch(intention.getIntentionType())
 			{
 			case REFUEL:
@@ -1201,13 +1273,10 @@ public class UtilityAgent2 extends TWAgent{
 				break;
 			default: thoughts.add(new TWThought(TWAction.MOVE, findReactiveDirection(intention.getLocation().getX(), intention.getLocation().getY())));
 			}
+			return new TWPlan(thoughts);
 		}
-		else
-		{
-			for(TWPathStep pathStep: path.getpath())
-				thoughts.add(new TWThought(TWAction.MOVE, pathStep.getDirection()));
-		}
-		return new TWPlan(thoughts);
+		//moves are read off the path as the plan runs, no thought per step
+		return new TWPlan(path);
 	}
 
 	//	private Int2D getExploreLocation_old()
@@ -1219,7 +1288,7 @@ public class UtilityAgent2 extends TWAgent{
 	//		Int2D cur = new Int2D(x, y);
 	//		Int2D prev = locationSnaps.getLast();
 	//		Int2D prev2 = locationSnaps.get(locationSnaps.size() - 2);
-	//		if(getEnvironment().getDistance(x, y, prev.x, prev.y) < parameters.get(UtilityParams.GAP_LOCATION_SNAP) / 2)
+	//		if(getEnvironment().getDistance(x, y, prev.x, prev.y) < params.get(UtilityParam.GAP_LOCATION_SNAP) / 2)
 	//		{
 	//			Int2D location1 = getLocationByDirection(cur, prev);
 	//			if(location1 != null)
@@ -1274,7 +1343,7 @@ public class UtilityAgent2 extends TWAgent{
 
 	private ArrayList<Int2D> getNeighbourSnaps()
 	{
-		int length = Parameters.defaultSensorRange * 2 + 1;
+		int length = getEnvironment().getConfig().getSensorRange() * 2 + 1;
 		Int2D current = mySnaps.peekFirst();
 		ArrayList<Int2D> snaps = new ArrayList<Int2D>(Arrays.asList(new Int2D[] {snapToCheckpoint(current.x + length, current.y), snapToCheckpoint(current.x - length, current.y), 
 				snapToCheckpoint(current.x, current.y + length), snapToCheckpoint(current.x, current.y - length)}));
@@ -1284,7 +1353,7 @@ public class UtilityAgent2 extends TWAgent{
 	}
 	private Int2D snapToCheckpoint(int xp, int yp)
 	{
-		int range = Parameters.defaultSensorRange;
+		int range = getEnvironment().getConfig().getSensorRange();
 		int length = 2*range + 1;
 		int xCheck, yCheck;
 		if(xp >= getEnvironment().getxDimension() - length)
@@ -1320,14 +1389,15 @@ public class UtilityAgent2 extends TWAgent{
 		double speedX = cur.x - prev.x;
 		double speedY = cur.y - prev.y;
 		int endX, endY;
+		int range = getEnvironment().getConfig().getSensorRange();
 		if(speedX >= 0)
-			endX = getEnvironment().getxDimension() - Parameters.defaultSensorRange;
+			endX = getEnvironment().getxDimension() - range;
 		else
-			endX = Parameters.defaultSensorRange;
+			endX = range;
 		if(speedY >= 0)
-			endY = getEnvironment().getyDimension() - Parameters.defaultSensorRange;
+			endY = getEnvironment().getyDimension() - range;
 		else
-			endY = Parameters.defaultSensorRange;
+			endY = range;
 
 		double timeX = (endX - cur.x) / speedX;
 		double timeY = (endY - cur.y) / speedY;
@@ -1344,7 +1414,7 @@ public class UtilityAgent2 extends TWAgent{
 	{
 		Int2D location = getEnvironment().generateFarRandomLocation(getX(), getY(), 
 				(getEnvironment().getxDimension() + getEnvironment().getyDimension()) / 2);
-		while(getMemory().isCellBlocked(location.x, location.y, parameters.get(UtilityParams.DECAY_MEMORY_AFTER).intValue()))
+		while(getMemory().isCellBlocked(location.x, location.y, (int) params.get(UtilityParam.DECAY_MEMORY_AFTER)))
 			location = getEnvironment().generateFarRandomLocation(getX(), getY(), 
 					(getEnvironment().getxDimension() + getEnvironment().getyDimension()) / 2);
 		return location;
@@ -1402,7 +1472,7 @@ public class UtilityAgent2 extends TWAgent{
 	}
 
 	public  double combineUtilities (double x, double y) {
-		double d = parameters.get(UtilityParams.WEIGHT_COMBINATION);
+		double d = params.get(UtilityParam.WEIGHT_COMBINATION);
 		x /= 100.0;
 		y /= 100.0;
 		double result = Math.pow(Math.tanh(atanh(Math.pow(x, d)) + atanh(Math.pow(y, d))),1/d);
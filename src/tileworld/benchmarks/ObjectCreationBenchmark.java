@@ -0,0 +1,79 @@
+package tileworld.benchmarks;
+
+import java.lang.reflect.Constructor;
+
+import sim.util.Int2D;
+import tileworld.environment.TWEnvironment;
+import tileworld.environment.TWObject;
+import tileworld.environment.TWObjectFactory;
+import tileworld.environment.TWTile;
+
+/**
+ * ObjectCreationBenchmark
+ *
+ * Description:
+ *
+ * Compares the two ways TWObjectCreator has made objects: looking up the
+ * (Int2D, TWEnvironment, Double, Double) constructor and calling
+ * newInstance with boxed times, as it used to, against the type's
+ * TWObjectFactory. Objects are made without an environment, so only the
+ * construction itself is timed, not the grid update.
+ *
+ * Usage: java tileworld.benchmarks.ObjectCreationBenchmark [objects]
+ * (default 5000000 objects per measurement)
+ */
+public class ObjectCreationBenchmark {
+
+    private static final Class<?>[] CLASSES = {Int2D.class, TWEnvironment.class, Double.class, Double.class};
+    /** Created objects are kept here for a while, as the environment would */
+    private static final TWObject[] live = new TWObject[4096];
+
+    public static void main(String[] args) throws Exception {
+        int objects = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+
+        System.out.println("round   reflection ns/op   factory ns/op");
+        for (int round = 0; round < 5; round++) {
+            double reflective = reflective(TWTile.class, objects);
+            double factory = factory(TWTile.FACTORY, objects);
+            System.out.println(String.format("%5d   %16.1f   %13.1f", round, reflective, factory));
+        }
+        System.exit(0);
+    }
+
+    private static double reflective(Class<? extends TWObject> clazz, int objects) throws Exception {
+        long sink = 0;
+        Int2D pos = new Int2D(1, 2);
+        long start = System.nanoTime();
+        for (int i = 0; i < objects; i++) {
+            double time = i;
+            Constructor<? extends TWObject> constructor = clazz.getDeclaredConstructor(CLASSES);
+            TWObject o = constructor.newInstance(pos, null, time, time + 30);
+            live[i & (live.length - 1)] = o;
+            sink += o.getX();
+        }
+        long elapsed = System.nanoTime() - start;
+        consume(sink);
+        return (double) elapsed / objects;
+    }
+
+    private static double factory(TWObjectFactory<? extends TWObject> factory, int objects) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < objects; i++) {
+            double time = i;
+            TWObject o = factory.create(1, 2, null, time, time + 30);
+            live[i & (live.length - 1)] = o;
+            sink += o.getX();
+        }
+        long elapsed = System.nanoTime() - start;
+        consume(sink);
+        return (double) elapsed / objects;
+    }
+
+    /** Keeps the JIT from dropping the timed loops */
+    private static void consume(long value) {
+        if (value == 42) {
+            System.out.print("");
+        }
+    }
+}
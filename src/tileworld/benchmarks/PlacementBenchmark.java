@@ -0,0 +1,101 @@
+package tileworld.benchmarks;
+
+import sim.util.Int2D;
+import tileworld.EnvironmentConfig;
+import tileworld.environment.TWEnvironment;
+import tileworld.environment.TWObstacle;
+
+/**
+ * PlacementBenchmark
+ *
+ * Description:
+ *
+ * Measures the cost of picking a random free cell for a new object at
+ * different grid fill levels: TWEnvironment#generateRandomLocation (free
+ * cell index) against the rejection sampling it replaced, which draws
+ * random cells until it hits an empty one.
+ *
+ * Usage: java tileworld.benchmarks.PlacementBenchmark [size] [calls]
+ * (defaults: a 100x100 grid, 1000000 calls per measurement)
+ */
+public class PlacementBenchmark {
+
+    private static final double[] FILL = {0.10, 0.25, 0.50, 0.75, 0.90, 0.95};
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int calls = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        EnvironmentConfig config = EnvironmentConfig.DEFAULT.with("xDimension", String.valueOf(size))
+                .with("yDimension", String.valueOf(size));
+
+        System.out.println("fill   freeIndex ns/op   rejection ns/op");
+        for (double fill : FILL) {
+            TWEnvironment env = filledEnvironment(config, fill);
+            // warm up both paths before timing
+            indexed(env, calls / 10);
+            rejection(env, calls / 10);
+            double indexedNanos = indexed(env, calls);
+            double rejectionNanos = rejection(env, calls);
+            System.out.println(String.format("%3.0f%%   %15.1f   %15.1f", fill * 100, indexedNanos, rejectionNanos));
+        }
+        System.exit(0);
+    }
+
+    /**
+     * A started environment with obstacles in the given fraction of its
+     * cells. The environment is never stepped, so nothing expires.
+     */
+    private static TWEnvironment filledEnvironment(EnvironmentConfig config, double fill) {
+        TWEnvironment env = new TWEnvironment(1, config);
+        env.start();
+        int cells = env.getxDimension() * env.getyDimension();
+        int target = (int) (cells * fill);
+        int occupied = 0;
+        for (int x = 0; x < env.getxDimension(); x++) {
+            for (int y = 0; y < env.getyDimension(); y++) {
+                if (!env.isValidCreationLocation(x, y)) {
+                    occupied++;
+                }
+            }
+        }
+        while (occupied < target) {
+            Int2D pos = env.generateRandomLocation();
+            new TWObstacle(pos, env, 0.0, Double.MAX_VALUE);
+            occupied++;
+        }
+        return env;
+    }
+
+    private static double indexed(TWEnvironment env, int calls) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            sink += env.generateRandomLocation().x;
+        }
+        long elapsed = System.nanoTime() - start;
+        consume(sink);
+        return (double) elapsed / calls;
+    }
+
+    private static double rejection(TWEnvironment env, int calls) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            int gx, gy;
+            while (!env.isValidCreationLocation(gx = env.random.nextInt(env.getxDimension()),
+                    gy = env.random.nextInt(env.getyDimension()))) {
+            }
+            sink += gx + gy;
+        }
+        long elapsed = System.nanoTime() - start;
+        consume(sink);
+        return (double) elapsed / calls;
+    }
+
+    /** Keeps the JIT from dropping the timed loops */
+    private static void consume(long value) {
+        if (value == 42) {
+            System.out.print("");
+        }
+    }
+}
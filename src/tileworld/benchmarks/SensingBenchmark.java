@@ -0,0 +1,84 @@
+package tileworld.benchmarks;
+
+import java.lang.management.ManagementFactory;
+
+import practicalreasoning.UtilityParams;
+import sim.util.Bag;
+import sim.util.IntBag;
+import tileworld.EnvironmentConfig;
+import tileworld.agent.TWAgent;
+import tileworld.agent.TWAgentWorkingMemory;
+import tileworld.agent.UtilityAgent2;
+import tileworld.environment.TWEnvironment;
+
+/**
+ * SensingBenchmark
+ *
+ * Description:
+ *
+ * Times one agent's sense step and counts the bytes it allocates:
+ * TWAgentSensor#sense, which reads the sensor window straight into memory,
+ * against the old path, which filled six fresh bags with two
+ * getNeighborsMaxDistance calls and handed them to
+ * TWAgentWorkingMemory#updateMemory. Allocation is read from the JVM's
+ * per-thread allocation counter (HotSpot only).
+ *
+ * Usage: java tileworld.benchmarks.SensingBenchmark [calls]
+ * (default 1000000 calls per measurement)
+ */
+public class SensingBenchmark {
+
+    public static void main(String[] args) {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        // the clock never moves here, so decay would only pile up its schedule
+        TWEnvironment env = new TWEnvironment(1, EnvironmentConfig.DEFAULT.with("memoryDecay", "false"));
+        env.start();
+        // fill the map as a run would
+        for (int i = 0; i < 200; i++) {
+            env.step(env);
+        }
+        TWAgent agent = new UtilityAgent2("Bench", env.getxDimension() / 2, env.getyDimension() / 2, env,
+                env.getConfig().getFuelLevel(), UtilityParams.defaultParams());
+
+        System.out.println("round   sensor ns/op   B/op   bags ns/op   B/op");
+        for (int round = 0; round < 5; round++) {
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                agent.getSensor().sense();
+            }
+            double sensorNanos = (double) (System.nanoTime() - start) / calls;
+            double sensorBytes = (double) (allocatedBytes() - bytes) / calls;
+
+            bytes = allocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                senseWithBags(agent, env);
+            }
+            double bagNanos = (double) (System.nanoTime() - start) / calls;
+            double bagBytes = (double) (allocatedBytes() - bytes) / calls;
+            System.out.println(String.format("%5d   %12.1f   %4.0f   %10.1f   %4.0f",
+                    round, sensorNanos, sensorBytes, bagNanos, bagBytes));
+        }
+        System.exit(0);
+    }
+
+    /** The sense step as it was */
+    private static void senseWithBags(TWAgent agent, TWEnvironment env) {
+        int range = env.getConfig().getSensorRange();
+        Bag sensedObjects = new Bag();
+        Bag sensedAgents = new Bag();
+        IntBag objectXCoords = new IntBag();
+        IntBag objectYCoords = new IntBag();
+        IntBag agentXCoords = new IntBag();
+        IntBag agentYCoords = new IntBag();
+        env.getObjectGrid().getNeighborsMaxDistance(agent.getX(), agent.getY(), range, false, sensedObjects, objectXCoords, objectYCoords);
+        env.getObjectGrid().getNeighborsMaxDistance(agent.getX(), agent.getY(), range, false, sensedAgents, agentXCoords, agentYCoords);
+        agent.getMemory().updateMemory(sensedObjects, objectXCoords, objectYCoords, sensedAgents, agentXCoords, agentYCoords);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
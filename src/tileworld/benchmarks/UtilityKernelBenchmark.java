@@ -0,0 +1,106 @@
+package tileworld.benchmarks;
+
+import java.util.HashMap;
+
+import ec.util.MersenneTwisterFast;
+import practicalreasoning.UtilityKernel;
+import practicalreasoning.UtilityParamVector;
+import practicalreasoning.UtilityParams;
+
+/**
+ * UtilityKernelBenchmark
+ *
+ * Description:
+ *
+ * Checks UtilityKernel against the arithmetic computeUtilities used to do
+ * inline and times both. Each case is a candidate with a base utility and
+ * a handful of neighbours at random Manhattan distances. The old path works
+ * out every neighbour with normalDistribution, reading its parameters from
+ * the map, and folds it in with combineUtilities. The kernel path looks the
+ * Gaussian up and adds in atanh space. Prints the largest difference between
+ * the two results and the time per neighbour.
+ *
+ * Usage: java tileworld.benchmarks.UtilityKernelBenchmark [cases]
+ * (default 1000000 cases per measurement)
+ */
+public class UtilityKernelBenchmark {
+
+    private static final int MAX_DISTANCE = 100;
+    private static final int NEIGHBOURS = 6;
+
+    public static void main(String[] args) {
+        int cases = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        HashMap<String, Double> parameters = UtilityParams.defaultParams();
+        UtilityParamVector vector = UtilityParamVector.fromMap(parameters);
+        UtilityKernel kernel = new UtilityKernel(MAX_DISTANCE);
+        kernel.resolve(vector);
+
+        MersenneTwisterFast random = new MersenneTwisterFast(1);
+        double[] base = new double[cases];
+        double[] utilities = new double[cases * NEIGHBOURS];
+        int[] distances = new int[cases * NEIGHBOURS];
+        for (int c = 0; c < cases; c++) {
+            base[c] = kernel.tileUtility(random.nextInt(MAX_DISTANCE), random.nextInt(30));
+            for (int n = 0; n < NEIGHBOURS; n++) {
+                utilities[c * NEIGHBOURS + n] = kernel.holeUtility(random.nextInt(MAX_DISTANCE), random.nextInt(30));
+                distances[c * NEIGHBOURS + n] = 1 + random.nextInt(6);
+            }
+        }
+
+        double[] expected = new double[cases];
+        double[] actual = new double[cases];
+        System.out.println("round   old ns/neighbour   kernel ns/neighbour   max |difference|");
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int c = 0; c < cases; c++) {
+                double utility = base[c];
+                for (int n = 0; n < NEIGHBOURS; n++) {
+                    double neighbour = normalDistribution(utilities[c * NEIGHBOURS + n], 0,
+                            parameters.get(UtilityParams.DEVIATION_NEIGHBOUR),
+                            (double) distances[c * NEIGHBOURS + n] / MAX_DISTANCE);
+                    utility = combineUtilities(utility, neighbour, parameters);
+                }
+                expected[c] = utility;
+            }
+            double oldNanos = (double) (System.nanoTime() - start) / ((long) cases * NEIGHBOURS);
+
+            start = System.nanoTime();
+            for (int c = 0; c < cases; c++) {
+                // once per case, far more often than the once per step of a real run
+                kernel.resolve(vector);
+                double combined = kernel.toCombined(base[c]);
+                for (int n = 0; n < NEIGHBOURS; n++) {
+                    combined += kernel.toCombined(kernel.neighbourUtility(utilities[c * NEIGHBOURS + n],
+                            distances[c * NEIGHBOURS + n]));
+                }
+                actual[c] = kernel.fromCombined(combined);
+            }
+            double kernelNanos = (double) (System.nanoTime() - start) / ((long) cases * NEIGHBOURS);
+
+            double worst = 0;
+            for (int c = 0; c < cases; c++) {
+                worst = Math.max(worst, Math.abs(expected[c] - actual[c]));
+            }
+            System.out.println(String.format("%5d   %16.1f   %19.1f   %16.2e", round, oldNanos, kernelNanos, worst));
+        }
+        System.exit(0);
+    }
+
+    /** As UtilityAgent2.normalDistribution */
+    private static double normalDistribution(double peak, double mean, double std, double x) {
+        return peak * Math.exp(-1 * (Math.pow(x - mean, 2)) / (2 * Math.pow(std, 2)));
+    }
+
+    /** As UtilityAgent2.combineUtilities */
+    private static double combineUtilities(double x, double y, HashMap<String, Double> parameters) {
+        double d = parameters.get(UtilityParams.WEIGHT_COMBINATION);
+        x /= 100.0;
+        y /= 100.0;
+        double result = Math.pow(Math.tanh(atanh(Math.pow(x, d)) + atanh(Math.pow(y, d))), 1 / d);
+        return result * 100;
+    }
+
+    private static double atanh(double x) {
+        return 0.5 * (Math.log(1 + x) - Math.log(1 - x));
+    }
+}
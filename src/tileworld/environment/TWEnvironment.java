@@ -6,6 +6,7 @@ package tileworld.environment;
 import java.util.ArrayList;
 import java.util.HashMap;
 
+import communication.PostBox;
 import practicalreasoning.UtilityParams;
 import sim.app.crowd3d.Agent;
 import sim.engine.SimState;
@@ -13,9 +14,11 @@ import sim.engine.Steppable;
 import sim.field.grid.ObjectGrid2D;
 import sim.util.Bag;
 import sim.util.Int2D;
+import tileworld.EnvironmentConfig;
 import tileworld.Parameters;
 import tileworld.TWGUI;
 import tileworld.agent.TWAgent;
+import tileworld.agent.TWTeamMemory;
 import tileworld.agent.UtilityAgent2;
 
 /**
@@ -34,9 +37,16 @@ import tileworld.agent.UtilityAgent2;
 public class TWEnvironment extends SimState implements Steppable {
 
 
-    //Parameters to configure the environment - read from main parameter file
-    private final int xDimension = Parameters.xDimension; //size in cells
-    private final int yDimension = Parameters.yDimension;
+    //Parameters to configure the environment - read from this environment's config
+    private final EnvironmentConfig config;
+    private final int xDimension; //size in cells
+    private final int yDimension;
+    /**
+     * Seed this environment was created with, and how many agent memories
+     * have been seeded from it since start.
+     */
+    private final long seed;
+    private int memoriesSeeded;
     
     /**
      * grid environment which stores all TWEntities, ObjectGrd is preferred over
@@ -44,6 +54,10 @@ public class TWEnvironment extends SimState implements Steppable {
      * have multiple objects on the same cell.
      */
     private ObjectGrid2D objectGrid;
+    /**
+     * Cells of objectGrid holding nothing, kept up to date by setGridObject.
+     */
+    private TWFreeCellIndex freeCells;
     private ObjectGrid2D agentGrid;
     private ArrayList<HashMap<String,Double>> parameters;
     private ArrayList<TWAgent> agents;
@@ -52,13 +66,26 @@ public class TWEnvironment extends SimState implements Steppable {
     private TWObjectCreator<TWHole> holeCreator;
     private TWObjectCreator<TWObstacle> obstacleCreator;
     /**
-     * Assumed all objects have same lifeTime now.
+     * All live tiles, holes and obstacles, earliest to die first.
      */
-    //containers for all objects in the environment
-    private Bag tiles;
-    private Bag holes;
-    private Bag obstacles;
+    private TWObjectExpiryQueue objectsByExpiry = new TWObjectExpiryQueue();
     private TWFuelStation fuelingStation;
+    /**
+     * Message bus for the agents of this environment only.
+     */
+    private PostBox postBox = new PostBox();
+    /**
+     * How the agents' memories are shared, renewed with the agents in start.
+     */
+    private TWTeamMemory teamMemory;
+    /**
+     * Phase timings and counters of the current run, cleared in start.
+     */
+    private final TWProfiler profiler = new TWProfiler();
+    /**
+     * The display attached to this environment, null when running headless.
+     */
+    private transient TWGUI gui;
 
 
     public TWFuelStation getFuelingStation() {
@@ -75,27 +102,40 @@ public class TWEnvironment extends SimState implements Steppable {
     }
     
     public TWEnvironment(long seed) {
+        this(seed, EnvironmentConfig.DEFAULT);
+    }
+
+    public TWEnvironment(long seed, EnvironmentConfig config) {
         super(seed);
         //System.out.println("CALLED");
+        this.seed = seed;
+        this.config = config;
+        this.xDimension = config.getxDimension();
+        this.yDimension = config.getyDimension();
 
         // create object creation distributions (assumed normal for now)
 
-        this.tileCreator = new TWObjectCreator<TWTile>(Parameters.tileMean, Parameters.tileDev,
-                tiles, this.random, new TWTile(), this);
-        this.holeCreator = new TWObjectCreator<TWHole>(Parameters.holeMean, Parameters.holeDev,
-                holes, this.random, new TWHole(), this);
-        this.obstacleCreator = new TWObjectCreator<TWObstacle>(Parameters.obstacleMean,
-                Parameters.obstacleDev, obstacles, this.random, new TWObstacle(), this);
+        this.tileCreator = new TWObjectCreator<TWTile>(config.getTileMean(), config.getTileDev(),
+                this.random, TWTile.FACTORY, this);
+        this.holeCreator = new TWObjectCreator<TWHole>(config.getHoleMean(), config.getHoleDev(),
+                this.random, TWHole.FACTORY, this);
+        this.obstacleCreator = new TWObjectCreator<TWObstacle>(config.getObstacleMean(),
+                config.getObstacleDev(), this.random, TWObstacle.FACTORY, this);
         parameters = new ArrayList<HashMap<String,Double>>();
         parameters.add(UtilityParams.defaultParams());
         parameters.add(UtilityParams.defaultParams());
-        tiles = new Bag();
-        holes = new Bag();
-        obstacles = new Bag();
     }
 
     public TWEnvironment(long seed, ArrayList<HashMap<String,Double>> parameters) {
-        super(tileworld.Parameters.seed);
+        this(seed, EnvironmentConfig.DEFAULT, parameters);
+    }
+
+    public TWEnvironment(long seed, EnvironmentConfig config, ArrayList<HashMap<String,Double>> parameters) {
+        super(seed);
+        this.seed = seed;
+        this.config = config;
+        this.xDimension = config.getxDimension();
+        this.yDimension = config.getyDimension();
     	//super(9042014);
         /// CONSTRUCTOR FOR GA
         // create object creation distributions (assumed normal for now)
@@ -111,23 +151,18 @@ public class TWEnvironment extends SimState implements Steppable {
         tiles = new Bag();
         holes = new Bag();
         obstacles = new Bag();*/
-        System.out.println("AGENT");
-        
-        this.tileCreator = new TWObjectCreator<TWTile>(tileworld.Parameters.tileMean, tileworld.Parameters.tileDev,
-                tiles, this.random, new TWTile(), this);
-        this.holeCreator = new TWObjectCreator<TWHole>(tileworld.Parameters.holeMean, tileworld.Parameters.holeDev,
-                holes, this.random, new TWHole(), this);
-        this.obstacleCreator = new TWObjectCreator<TWObstacle>(tileworld.Parameters.obstacleMean,
-        		tileworld.Parameters.obstacleDev, obstacles, this.random, new TWObstacle(), this);
+        this.tileCreator = new TWObjectCreator<TWTile>(config.getTileMean(), config.getTileDev(),
+                this.random, TWTile.FACTORY, this);
+        this.holeCreator = new TWObjectCreator<TWHole>(config.getHoleMean(), config.getHoleDev(),
+                this.random, TWHole.FACTORY, this);
+        this.obstacleCreator = new TWObjectCreator<TWObstacle>(config.getObstacleMean(),
+        		config.getObstacleDev(), this.random, TWObstacle.FACTORY, this);
         this.parameters = new ArrayList<HashMap<String,Double>>();
         this.parameters.add(parameters.get(0));
         this.parameters.add(parameters.get(1));
         //this.parameters.add(UtilityParams.defaultParams());
         //this.parameters.add(UtilityParams.defaultParams());
         //System.out.printf("%f, %f, %f, %f, %f, %f\n", parameters.get(0).get(UtilityParams.DEVIATION_TILES), parameters.get(0).get(UtilityParams.DEVIATION_HOLES), parameters.get(0).get(UtilityParams.DEVIATION_MEM_DECAY), parameters.get(0).get(UtilityParams.THRESHOLD_EXPLORE), parameters.get(0).get(UtilityParams.LENGTH_SNAPS), parameters.get(0).get(UtilityParams.UTILITY_STICKY));
-        tiles = new Bag();
-        holes = new Bag();
-        obstacles = new Bag();
     }
 
     @Override
@@ -136,8 +171,12 @@ public class TWEnvironment extends SimState implements Steppable {
         //create my grid
         this.objectGrid = new ObjectGrid2D(getxDimension(), getyDimension());
         this.agentGrid = new ObjectGrid2D(getxDimension(), getyDimension());
-        if(TWGUI.instance!=null){
-            TWGUI.instance.resetDisplay();
+        this.freeCells = new TWFreeCellIndex(getxDimension(), getyDimension());
+        this.postBox = new PostBox();
+        this.objectsByExpiry.clear();
+        this.profiler.clear();
+        if(gui!=null){
+            gui.resetDisplay();
         }
 
         //The environment is also stepped each step
@@ -145,9 +184,11 @@ public class TWEnvironment extends SimState implements Steppable {
         schedule.scheduleRepeating(this, 1, 1.0);
 
         this.agents = new ArrayList<TWAgent>();
+        this.teamMemory = new TWTeamMemory(config.getTeamMemory());
+        this.memoriesSeeded = 0;
         
-        agents.add(new UtilityAgent2("First", 0, 0, this, Parameters.defaultFuelLevel, parameters.get(0)));
-        agents.add(new UtilityAgent2("Second", 1, 1, this, Parameters.defaultFuelLevel, parameters.get(1)));
+        agents.add(new UtilityAgent2("First", 0, 0, this, config.getFuelLevel(), parameters.get(0)));
+        agents.add(new UtilityAgent2("Second", 1, 1, this, config.getFuelLevel(), parameters.get(1)));
         
         int i = 2;
         for(TWAgent agent: agents)
@@ -164,59 +205,46 @@ public class TWEnvironment extends SimState implements Steppable {
     }
 
     private void createTWObjects(double time) {
-        try {
-
-            tiles.addAll(tileCreator.createTWObjects(time));
-            
-            Bag bag = holeCreator.createTWObjects(time);
-            totalHolesCreated += bag.size();
-            holes.addAll(bag);
-            
-            obstacles.addAll(obstacleCreator.createTWObjects(time));
-        } catch (IllegalAccessException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-        } catch (InstantiationException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+        addTWObjects(tileCreator.createTWObjects(time));
+
+        Bag bag = holeCreator.createTWObjects(time);
+        totalHolesCreated += bag.size();
+        addTWObjects(bag);
+
+        addTWObjects(obstacleCreator.createTWObjects(time));
+    }
+
+    private void addTWObjects(Bag bag) {
+        for (int i = 0; i < bag.size(); i++) {
+            objectsByExpiry.add((TWObject) bag.get(i));
         }
     }
 
     /**
-     * Horribly inefficient, Context is not ordered so need complete iteration of context to remove items.
-     * This is done every timestep
+     * Removes the objects whose lifetime is over. Only the expired objects
+     * are looked at. An object already taken off the grid (a picked up tile
+     * or a filled hole) may have had a new object created in its cell, so
+     * the cell is only cleared if it still holds the expired object.
      */
     private void removeTWObjects(double timeNow) {
-
-        for (int i = 0; i < tiles.size(); i++) {
-            if (((TWObject) tiles.get(i)).getTimeLeft(timeNow) <= 0) {
-                this.objectGrid.set(((TWObject) tiles.get(i)).getX(), ((TWObject) tiles.get(i)).getY(), null);
-                tiles.remove(i);
-
-            }
-        }
-
-        for (int i = 0; i < holes.size(); i++) {
-            if (((TWObject) holes.get(i)).getTimeLeft(timeNow) <= 0) {
-                this.objectGrid.set(((TWObject) holes.get(i)).getX(), ((TWObject) holes.get(i)).getY(), null);
-                holes.remove(i);
-            }
-        }
-
-        for (int i = 0; i < obstacles.size(); i++) {
-            if (((TWObject) obstacles.get(i)).getTimeLeft(timeNow) <= 0) {
-                this.objectGrid.set(((TWObject) obstacles.get(i)).getX(), ((TWObject) obstacles.get(i)).getY(), null);
-                obstacles.remove(i);
+        TWObject o;
+        while ((o = objectsByExpiry.pollExpired(timeNow)) != null) {
+            if (this.objectGrid.get(o.getX(), o.getY()) == o) {
+                setGridObject(o.getX(), o.getY(), null);
             }
         }
     }
 
     public void step(SimState state) {
         double time = state.schedule.getTime();
+        long start = System.nanoTime();
         // create new objects
         createTWObjects(time);
+        long created = System.nanoTime();
+        profiler.record(TWProfiler.Phase.CREATE, created - start);
         // remove old objects (dead ones)
         removeTWObjects(time);
+        profiler.record(TWProfiler.Phase.REMOVE, System.nanoTime() - created);
     }
 
     /**
@@ -226,6 +254,20 @@ public class TWEnvironment extends SimState implements Steppable {
         return objectGrid;
     }
     
+    /**
+     * Puts e (null to empty the cell) into the object grid. All changes to
+     * the object grid should go through here rather than
+     * getObjectGrid().set so the free cell index stays correct.
+     */
+    public void setGridObject(int x, int y, TWEntity e) {
+        objectGrid.set(x, y, e);
+        if (e == null) {
+            freeCells.markFree(x, y);
+        } else {
+            freeCells.markOccupied(x, y);
+        }
+    }
+
     public ObjectGrid2D getAgentGrid() {
         return agentGrid;
     }
@@ -233,6 +275,30 @@ public class TWEnvironment extends SimState implements Steppable {
 
 
  
+    /**
+     * @return the team the agents' memories join, null before start
+     */
+    public TWTeamMemory getTeamMemory() {
+        return teamMemory;
+    }
+
+    /**
+     * @return the configuration this environment was created with
+     */
+    public EnvironmentConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Seed for the next agent memory's own generator. It comes from the
+     * environment's seed and the memory's order of creation, not from
+     * random, so the environment's draws are the same however many memories
+     * are created.
+     */
+    public long nextMemorySeed() {
+        return seed ^ (0x9E3779B97F4A7C15L * ++memoriesSeeded);
+    }
+
     /**
      * @return the xDimension
      */
@@ -294,19 +360,18 @@ public class TWEnvironment extends SimState implements Steppable {
     }
 
     /**
-     * picks a random location from the environment, used for free walk algorithm.
-     * Bit stupid now, will be very slow when the environment fills up.
-     * @param gx - this will be resulting x coordinate
-     * @param gy
+     * Picks a random free location from the environment, used when creating
+     * objects and for the free walk algorithm. Constant time however full
+     * the environment is.
+     *
+     * @return a uniformly chosen cell containing no object, null if every cell is taken
      */
     public Int2D generateRandomLocation() {
-        int gx = 1, gy = 1;
-        while (!isValidCreationLocation(
-                gx = this.random.nextInt(this.xDimension),
-                gy = this.random.nextInt(this.yDimension))) {
+        int cell = freeCells.randomCell(this.random);
+        if (cell < 0) {
+            return null;
         }
-
-        return new Int2D(gx, gy);
+        return new Int2D(cell / this.yDimension, cell % this.yDimension);
     }
 
     /**
@@ -379,11 +444,28 @@ public class TWEnvironment extends SimState implements Steppable {
      */
     private void createAgent(TWAgent a, int ordering) {
         schedule.scheduleRepeating(a, ordering, 1.0);
-        if(TWGUI.instance !=null){
-            TWGUI.instance.addMemoryPortrayal(a);
+        if(gui !=null){
+            gui.addMemoryPortrayal(a);
         }
     }
 
+    public TWProfiler getProfiler() {
+        return profiler;
+    }
+
+    public PostBox getPostBox()
+    {
+    	return postBox;
+    }
+
+    /**
+     * Called by TWGUI when it displays this environment.
+     */
+    public void setGUI(TWGUI gui)
+    {
+    	this.gui = gui;
+    }
+
     public int getScore()
     {
     	int score = 0;
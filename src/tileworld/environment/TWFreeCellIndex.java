@@ -0,0 +1,85 @@
+/**
+ *
+ */
+package tileworld.environment;
+
+import ec.util.MersenneTwisterFast;
+
+/**
+ * TWFreeCellIndex
+ *
+ * Description:
+ *
+ * The set of cells of the object grid that hold nothing, kept as a dense
+ * array of cell indices (x * height + y) plus the position of every cell in
+ * that array. Marking a cell free or occupied swaps it with the last free
+ * cell, so both are constant time, and a uniformly random free cell is one
+ * random index into the array however full the grid is.
+ */
+class TWFreeCellIndex {
+
+    private final int height;
+    /** Free cells, the first size entries are valid */
+    private final int[] cells;
+    /** Position of each cell in cells, -1 if occupied */
+    private final int[] position;
+    private int size;
+
+    /**
+     * Creates the index with every cell free.
+     */
+    TWFreeCellIndex(int width, int height) {
+        this.height = height;
+        int n = width * height;
+        cells = new int[n];
+        position = new int[n];
+        for (int i = 0; i < n; i++) {
+            cells[i] = i;
+            position[i] = i;
+        }
+        size = n;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isFree(int x, int y) {
+        return position[x * height + y] >= 0;
+    }
+
+    void markOccupied(int x, int y) {
+        int cell = x * height + y;
+        int i = position[cell];
+        if (i < 0) {
+            return;
+        }
+        int last = cells[--size];
+        cells[i] = last;
+        position[last] = i;
+        position[cell] = -1;
+    }
+
+    void markFree(int x, int y) {
+        int cell = x * height + y;
+        if (position[cell] >= 0) {
+            return;
+        }
+        cells[size] = cell;
+        position[cell] = size++;
+    }
+
+    /**
+     * @return a uniformly chosen free cell index, -1 if the grid is full
+     */
+    int randomCell(MersenneTwisterFast random) {
+        return size == 0 ? -1 : cells[random.nextInt(size)];
+    }
+
+    /**
+     * @return the i-th free cell index, 0 <= i < size()
+     */
+    int cell(int i) {
+        return cells[i];
+    }
+}
@@ -22,6 +22,15 @@ import sim.util.Int2D;
  */
 public class TWHole extends TWObject{
 
+    /**
+     * Used by TWObjectCreator to create holes
+     */
+    public static final TWObjectFactory<TWHole> FACTORY = new TWObjectFactory<TWHole>() {
+        public TWHole create(int x, int y, TWEnvironment env, double creationTime, double deathTime) {
+            return new TWHole(x, y, env, creationTime, deathTime);
+        }
+    };
+
     /**
      * @param creationTime
      * @param deathTime
@@ -4,7 +4,6 @@
 package tileworld.environment;
 
 import sim.util.Int2D;
-import tileworld.Parameters;
 import tileworld.planners.TWPath;
 
 /**
@@ -21,9 +20,7 @@ import tileworld.planners.TWPath;
  */
 public class TWObject extends TWEntity implements Comparable<TWObject>{
 
-	protected static final int lifeTime = Parameters.lifeTime;
-
-	private Double utility;
+	private double utility;
 	private TWPath pathTo;
 	private double creationTime;
 	private double dTime;
@@ -70,7 +67,7 @@ public class TWObject extends TWEntity implements Comparable<TWObject>{
 
 	@Override
 	public int compareTo(TWObject o) {
-		return o.utility.compareTo(this.utility);
+		return Double.compare(o.utility, this.utility);
 	}
 
 	public TWPath getPathTo() {
@@ -81,11 +78,11 @@ public class TWObject extends TWEntity implements Comparable<TWObject>{
 		this.pathTo = pathTo;
 	}
 
-	public Double getUtility() {
+	public double getUtility() {
 		return utility;
 	}
 
-	public void setUtility(Double utility) {
+	public void setUtility(double utility) {
 		this.utility = utility;
 	}
 
@@ -4,12 +4,8 @@
 package tileworld.environment;
 
 import ec.util.MersenneTwisterFast;
-import java.lang.reflect.InvocationTargetException;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import sim.util.Bag;
 import sim.util.Int2D;
-import tileworld.Parameters;
 
 /**
  * TWObjectCreator
@@ -21,28 +17,30 @@ import tileworld.Parameters;
  * Description:
  *
  * A class to create all types of TWObjects, the generic type T is the type of
- * TWObject.
+ * TWObject. Objects are made by the type's TWObjectFactory (e.g.
+ * TWTile.FACTORY) rather than through reflection.
  */
-public class TWObjectCreator<T> {
+public class TWObjectCreator<T extends TWObject> {
 
     double mean;
     double dev;
     MersenneTwisterFast random;
     TWEnvironment env;
-    private T instance;
-    Class[] classes = {Int2D.class, TWEnvironment.class, Double.class, Double.class};
+    private TWObjectFactory<T> factory;
 
     /**
-     * @param mean
-     * @param dev
-     * @param tileCreationDistribution
+     * @param mean mean number of objects created per step
+     * @param dev standard deviation of the number created per step
+     * @param random random generator of the environment
+     * @param factory makes the objects, e.g. TWTile.FACTORY
+     * @param env environment the objects are placed in
      */
     public TWObjectCreator(double mean, double dev,
-            Bag context, MersenneTwisterFast random, T inst, TWEnvironment env) {
+            MersenneTwisterFast random, TWObjectFactory<T> factory, TWEnvironment env) {
         super();
         this.mean = mean;
         this.dev = dev;
-        instance = inst;
+        this.factory = factory;
 
         this.env = env;
         // create object creation distributions (assumed normal for now)
@@ -50,40 +48,27 @@ public class TWObjectCreator<T> {
 
     }
 
-    public Bag createTWObjects(double time) throws IllegalAccessException, InstantiationException {
+    public Bag createTWObjects(double time) {
 
         //translate the random variable between [0,1] to specified mean and std deviation
         double numberObjects = mean + dev * this.random.nextGaussian();
+        int whole = (int) Math.floor(numberObjects);
 
         Bag items = new Bag();
-        for (int i = 0; i < Math.floor(numberObjects); i++) {
-            T o = null;
-            try {
-                o = create((Class<T>) instance.getClass(), time);
-            } catch (InstantiationException e) {
-                e.printStackTrace();
-                throw e;
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
-                throw e;
+        for (int i = 0; i < whole; i++) {
+            T o = create(time);
+            if (o != null) {
+                items.add(o);
             }
-            items.add((TWObject) o);
         }
 
-        if (numberObjects - Math.floor(numberObjects) > this.random.nextDouble()) {
-            try {
-                items.add((TWObject) create((Class<T>) instance.getClass(), time));
-            } catch (InstantiationException e) {
-                e.printStackTrace();
-                throw e;
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
-                throw e;
+        if (numberObjects - whole > this.random.nextDouble()) {
+            T o = create(time);
+            if (o != null) {
+                items.add(o);
             }
         }
 
-
-
         return items;
     }
 
@@ -91,31 +76,16 @@ public class TWObjectCreator<T> {
      * Creates an instance of the appropriate type (according to T) and then
      * sets the relevant parameters such as deathtime and location
      *
-     * @param clazz class of type to create
      * @param time timestamp of creation
-     * @return the created object
-     *
-     * @throws InstantiationException
-     * @throws IllegalAccessException
+     * @return the created object, null if there is no free cell to put it in
      */
-    private T create(Class<T> clazz, double time) throws InstantiationException, IllegalAccessException {
+    private T create(double time) {
 
         Int2D pos = env.generateRandomLocation();
-
-        T o = null;
-        try {
-            o = clazz.getDeclaredConstructor(classes).newInstance(pos, env, time, (time + Parameters.lifeTime));
-        } catch (IllegalArgumentException ex) {
-            Logger.getLogger(TWObjectCreator.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (InvocationTargetException ex) {
-            Logger.getLogger(TWObjectCreator.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (NoSuchMethodException ex) {
-            Logger.getLogger(TWObjectCreator.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (SecurityException ex) {
-            Logger.getLogger(TWObjectCreator.class.getName()).log(Level.SEVERE, null, ex);
+        if (pos == null) {
+            return null;
         }
 
-        assert (o instanceof TWObject);
-        return o;
+        return factory.create(pos.x, pos.y, env, time, time + env.getConfig().getLifeTime());
     }
 }
@@ -0,0 +1,89 @@
+/**
+ *
+ */
+package tileworld.environment;
+
+/**
+ * TWObjectExpiryQueue
+ *
+ * Description:
+ *
+ * The live TWObjects of an environment ordered by death time. Every object
+ * gets the same lifetime, so objects are created in the order they die and
+ * the queue is a plain ring buffer: adding goes on the tail and expired
+ * objects come off the head, so a step only looks at the objects that
+ * actually expire. An object that dies earlier than the current tail is
+ * still accepted and moved into place.
+ */
+class TWObjectExpiryQueue {
+
+    private TWObject[] ring = new TWObject[64];
+    /** Index of the first (earliest dying) object */
+    private int head = 0;
+    private int size = 0;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void add(TWObject o) {
+        if (size == ring.length) {
+            grow();
+        }
+        // shift later dying objects up, normally none
+        int i = size;
+        while (i > 0 && get(i - 1).getDeathTime() > o.getDeathTime()) {
+            ring[index(i)] = get(i - 1);
+            i--;
+        }
+        ring[index(i)] = o;
+        size++;
+    }
+
+    /**
+     * Removes and returns the earliest dying object if it has expired at
+     * timeNow, i.e. it has no time left.
+     *
+     * @return the expired object or null if none has expired
+     */
+    TWObject pollExpired(double timeNow) {
+        if (size == 0 || ring[head].getTimeLeft(timeNow) > 0) {
+            return null;
+        }
+        TWObject o = ring[head];
+        ring[head] = null;
+        head = index(1);
+        size--;
+        return o;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            ring[index(i)] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    private TWObject get(int i) {
+        return ring[index(i)];
+    }
+
+    private int index(int i) {
+        int j = head + i;
+        return j >= ring.length ? j - ring.length : j;
+    }
+
+    private void grow() {
+        TWObject[] bigger = new TWObject[ring.length * 2];
+        for (int i = 0; i < size; i++) {
+            bigger[i] = get(i);
+        }
+        ring = bigger;
+        head = 0;
+    }
+}
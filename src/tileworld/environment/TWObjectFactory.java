@@ -0,0 +1,21 @@
+/**
+ * 
+ */
+package tileworld.environment;
+
+/**
+ * TWObjectFactory
+ *
+ * Description:
+ *
+ * Creates one kind of TWObject for a TWObjectCreator. Each TWObject type
+ * has its own FACTORY constant, which calls the constructor directly, so
+ * creating an object needs no reflection and no boxed times.
+ */
+public interface TWObjectFactory<T extends TWObject> {
+
+    /**
+     * @return a new object at x,y, already placed in env's object grid
+     */
+    T create(int x, int y, TWEnvironment env, double creationTime, double deathTime);
+}
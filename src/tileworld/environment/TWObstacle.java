@@ -25,6 +25,15 @@ import sim.util.Int2D;
  */
 public class TWObstacle extends TWObject {
 
+    /**
+     * Used by TWObjectCreator to create obstacles
+     */
+    public static final TWObjectFactory<TWObstacle> FACTORY = new TWObjectFactory<TWObstacle>() {
+        public TWObstacle create(int x, int y, TWEnvironment env, double creationTime, double deathTime) {
+            return new TWObstacle(x, y, env, creationTime, deathTime);
+        }
+    };
+
     /**
      * @param creationTime
      * @param deathTime
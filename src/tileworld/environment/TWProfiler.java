@@ -0,0 +1,158 @@
+package tileworld.environment;
+
+import java.io.Serializable;
+
+/**
+ * TWProfiler
+ *
+ * Description:
+ *
+ * Where a run's time goes. Each TWEnvironment has one, cleared in start.
+ * Phases are timed with System.nanoTime into log2 histograms (bucket b holds
+ * durations in [2^(b-1), 2^b) ns) and counters are plain sums, so recording
+ * is a few array increments and allocates nothing.
+ *
+ * SENSE, THINK and ACT are the three parts of TWAgent.step, CREATE and
+ * REMOVE the two parts of TWEnvironment.step. PATH is A* (AstarPathGenerator
+ * and RealTimePathGenerator) and is nested in THINK, its time is also part
+ * of THINK's.
+ *
+ * A profiler is filled by its environment's thread only. Profiles of
+ * several runs are summed with add, which is synchronized on the target.
+ */
+public class TWProfiler implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Phase {
+        SENSE, THINK, ACT, CREATE, REMOVE, PATH
+    }
+
+    public enum Counter {
+        /** nodes taken off the A* open list */
+        ASTAR_EXPANSIONS,
+        /** A* searches run */
+        PATHS,
+        /** cells written into agent memories by sensing */
+        MEMORY_UPDATES,
+        /** messages posted */
+        MESSAGES,
+        /** candidate paths served by TWPathCache */
+        PATH_CACHE_HITS,
+        /** candidate paths TWPathCache could not serve */
+        PATH_CACHE_MISSES,
+        /** RealTimePathGenerator searches stopped by their budget short of the target */
+        SEARCH_CUTOFFS
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final Counter[] COUNTERS = Counter.values();
+    private static final int BUCKETS = 64;
+
+    private final long[][] histograms = new long[PHASES.length][BUCKETS];
+    private final long[] samples = new long[PHASES.length];
+    private final long[] totalNanos = new long[PHASES.length];
+    private final long[] counters = new long[COUNTERS.length];
+    private int runs;
+
+    public void record(Phase phase, long nanos) {
+        int p = phase.ordinal();
+        histograms[p][BUCKETS - Long.numberOfLeadingZeros(Math.max(nanos, 0))]++;
+        samples[p]++;
+        totalNanos[p] += nanos;
+    }
+
+    public void count(Counter counter) {
+        counters[counter.ordinal()]++;
+    }
+
+    public void count(Counter counter, long n) {
+        counters[counter.ordinal()] += n;
+    }
+
+    public long getSamples(Phase phase) {
+        return samples[phase.ordinal()];
+    }
+
+    public long getTotalNanos(Phase phase) {
+        return totalNanos[phase.ordinal()];
+    }
+
+    public double getMeanNanos(Phase phase) {
+        long n = samples[phase.ordinal()];
+        return n == 0 ? 0 : (double) totalNanos[phase.ordinal()] / n;
+    }
+
+    /**
+     * @param q quantile in [0, 1]
+     * @return upper bound of the histogram bucket holding the q quantile, 0 if nothing was recorded
+     */
+    public long getQuantileNanos(Phase phase, double q) {
+        long[] histogram = histograms[phase.ordinal()];
+        long rank = (long) Math.ceil(q * samples[phase.ordinal()]);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += histogram[b];
+            if (seen >= rank && seen > 0) {
+                return b == 0 ? 0 : 1L << Math.min(b, 62);
+            }
+        }
+        return 0;
+    }
+
+    public long getCounter(Counter counter) {
+        return counters[counter.ordinal()];
+    }
+
+    /**
+     * @return number of profiles summed into this one, 1 for a single run's
+     */
+    public int getRuns() {
+        return Math.max(runs, 1);
+    }
+
+    public void clear() {
+        for (long[] histogram : histograms) {
+            java.util.Arrays.fill(histogram, 0);
+        }
+        java.util.Arrays.fill(samples, 0);
+        java.util.Arrays.fill(totalNanos, 0);
+        java.util.Arrays.fill(counters, 0);
+        runs = 0;
+    }
+
+    /**
+     * Adds another run's profile into this one.
+     */
+    public synchronized void add(TWProfiler other) {
+        for (int p = 0; p < PHASES.length; p++) {
+            for (int b = 0; b < BUCKETS; b++) {
+                histograms[p][b] += other.histograms[p][b];
+            }
+            samples[p] += other.samples[p];
+            totalNanos[p] += other.totalNanos[p];
+        }
+        for (int c = 0; c < COUNTERS.length; c++) {
+            counters[c] += other.counters[c];
+        }
+        runs += other.getRuns();
+    }
+
+    /**
+     * @return one line per phase (samples, total, mean, p50, p99) and per counter
+     */
+    public synchronized String report() {
+        StringBuilder s = new StringBuilder();
+        s.append(String.format("%-8s %10s %10s %9s %9s %9s%n", "phase", "samples", "total ms", "mean ns", "p50 ns", "p99 ns"));
+        for (Phase phase : PHASES) {
+            s.append(String.format("%-8s %10d %10.1f %9.0f %9d %9d%n", phase, getSamples(phase),
+                    getTotalNanos(phase) / 1e6, getMeanNanos(phase),
+                    getQuantileNanos(phase, 0.5), getQuantileNanos(phase, 0.99)));
+        }
+        for (Counter counter : COUNTERS) {
+            s.append(String.format("%-16s %12d (%.0f per run)%n", counter, getCounter(counter),
+                    (double) getCounter(counter) / getRuns()));
+        }
+        return s.toString();
+    }
+}
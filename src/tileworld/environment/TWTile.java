@@ -24,6 +24,15 @@ import sim.util.Int2D;
  */
 public class TWTile extends TWObject{
 
+	/**
+	 * Used by TWObjectCreator to create tiles
+	 */
+	public static final TWObjectFactory<TWTile> FACTORY = new TWObjectFactory<TWTile>() {
+		public TWTile create(int x, int y, TWEnvironment env, double creationTime, double deathTime) {
+			return new TWTile(x, y, env, creationTime, deathTime);
+		}
+	};
+
 	/**
 	 * @param creationTime
 	 * @param deathTime
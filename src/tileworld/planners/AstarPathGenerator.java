@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import tileworld.agent.TWAgent;
 import tileworld.environment.TWEnvironment;
+import tileworld.environment.TWProfiler;
 
 /**
  * TWContextBuilder
@@ -30,6 +31,16 @@ import tileworld.environment.TWEnvironment;
  */
 public class AstarPathGenerator{
 
+    /**
+     * Set to true to run the original SortedList/ArrayList search instead of
+     * the indexed heap search. Both expand nodes in the same order, so this
+     * is only useful for checking that scores are unchanged.
+     */
+    public static boolean USE_LEGACY_SEARCH = false;
+
+    /** Cell state values for the indexed search, valid only for the current generation */
+    private static final byte UNSEEN = 0, OPEN = 1, CLOSED = 2;
+
     /** The set of nodes that have been searched through */
     private ArrayList closed = new ArrayList();
     /** The set of nodes that we do not yet consider fully searched */
@@ -38,12 +49,27 @@ public class AstarPathGenerator{
     private TWEnvironment map;
     /** The maximum depth of search we're willing to accept before giving up */
     private int maxSearchDistance;
-    /** The complete set of nodes across the map */
+    /** The complete set of nodes across the map, only built for the legacy search */
     private Node[][] nodes;
     /** True if we allow diaganol movement */
     private boolean allowDiagMovement = false;
     /** Reference to this agent, for looking in memory */
     private TWAgent agent;
+    /** Height of the map, cell index is x * height + y */
+    private int height;
+    /** Open list of the indexed search, keyed on cost + heuristic */
+    private IndexedNodeHeap heap;
+    /** Search generation that last touched each cell, anything older is unseen */
+    private int[] generationOf;
+    /** Open/closed flag of each cell for the generation in generationOf */
+    private byte[] state;
+    /** Path cost, heuristic, parent index and search depth of each cell */
+    private double[] costOf;
+    private double[] heuristicOf;
+    private int[] parentOf;
+    private int[] depthOf;
+    /** Incremented for every search so the arrays never need clearing */
+    private int generation = 0;
 
     /**
      * Use the Euclidian distance heuristic here (could also try manhattan)
@@ -74,24 +100,150 @@ public class AstarPathGenerator{
         this.map = map;
         this.maxSearchDistance = maxSearchDistance;
 
-        //create the nodes used to store information about plan and map
-        nodes = new Node[map.getxDimension()][map.getyDimension()];
-        for (int x = 0; x < map.getxDimension(); x++) {
-            for (int y = 0; y < map.getyDimension(); y++) {
-                nodes[x][y] = new Node(x, y);
-            }
-        }
+        height = map.getyDimension();
+        int cells = map.getxDimension() * height;
+        heap = new IndexedNodeHeap(cells);
+        generationOf = new int[cells];
+        state = new byte[cells];
+        costOf = new double[cells];
+        heuristicOf = new double[cells];
+        parentOf = new int[cells];
+        depthOf = new int[cells];
     }
 
     /**
      * @see PathFinder#findPath(Mover, int, int, int, int)
      */
     public TWPath findPath(int sx, int sy, int tx, int ty, int decay) {
+        TWProfiler profiler = map.getProfiler();
+        long start = System.nanoTime();
+        TWPath path = USE_LEGACY_SEARCH ? findPathLegacy(sx, sy, tx, ty, decay) : findPathIndexed(sx, sy, tx, ty, decay);
+        profiler.record(TWProfiler.Phase.PATH, System.nanoTime() - start);
+        profiler.count(TWProfiler.Counter.PATHS);
+        return path;
+    }
+
+    /**
+     * A* over primitive arrays with an indexed binary heap as the open list.
+     * Membership tests are a flag lookup rather than a list scan, and the
+     * per cell arrays are stamped with the search generation instead of
+     * being cleared. Expansion order, and therefore the returned path, is the
+     * same as findPathLegacy.
+     */
+    private TWPath findPathIndexed(int sx, int sy, int tx, int ty, int decay) {
         // easy first check, if the destination is blocked, we can't get there
         if (agent.getMemory().isCellBlocked(tx, ty, decay)) {
             return null;
         }
 
+        if (++generation == 0) {
+            // wrapped around, old stamps could now look current
+            java.util.Arrays.fill(generationOf, 0);
+            generation = 1;
+        }
+        heap.clear();
+
+        int start = sx * height + sy;
+        int target = tx * height + ty;
+        touch(start);
+        costOf[start] = 0;
+        heuristicOf[start] = 0;
+        depthOf[start] = 0;
+        state[start] = OPEN;
+        heap.insert(start, 0);
+
+        int maxDepth = 0;
+        int expanded = 0;
+        while ((maxDepth < maxSearchDistance) && !heap.isEmpty()) {
+            int current = heap.peek();
+            if (current == target) {
+                break;
+            }
+            heap.poll();
+            state[current] = CLOSED;
+            expanded++;
+
+            int cx = current / height;
+            int cy = current - cx * height;
+            // same neighbour order as the legacy search: W, N, S, E
+            for (int d = 0; d < 4; d++) {
+                int xp = cx + (d == 0 ? -1 : (d == 3 ? 1 : 0));
+                int yp = cy + (d == 1 ? -1 : (d == 2 ? 1 : 0));
+
+                if (!isValidLocation(sx, sy, xp, yp) || agent.getMemory().isCellBlocked(xp, yp, decay)) {
+                    continue;
+                }
+                double nextStepCost = costOf[current] + getMovementCost(cx, cy, xp, yp);
+                int neighbour = xp * height + yp;
+                touch(neighbour);
+
+                if (state[neighbour] != UNSEEN && nextStepCost < costOf[neighbour]) {
+                    if (state[neighbour] == OPEN) {
+                        heap.remove(neighbour);
+                    }
+                    state[neighbour] = UNSEEN;
+                }
+
+                if (state[neighbour] == UNSEEN) {
+                    costOf[neighbour] = nextStepCost;
+                    heuristicOf[neighbour] = getHeuristicCost(xp, yp, tx, ty);
+                    parentOf[neighbour] = current;
+                    depthOf[neighbour] = depthOf[current] + 1;
+                    maxDepth = Math.max(maxDepth, depthOf[neighbour]);
+                    state[neighbour] = OPEN;
+                    heap.insert(neighbour, heuristicOf[neighbour] + costOf[neighbour]);
+                }
+            }
+        }
+
+        map.getProfiler().count(TWProfiler.Counter.ASTAR_EXPANSIONS, expanded);
+
+        // the target was never reached in this search (or is the start)
+        if (generationOf[target] != generation || target == start) {
+            return null;
+        }
+
+        TWPath path = new TWPath(tx, ty);
+        int step = parentOf[target];
+        while (step != start) {
+            path.prependStep(step / height, step % height);
+            step = parentOf[step];
+        }
+        path.prependStep(sx, sy);
+        return path;
+    }
+
+    /**
+     * Marks a cell as seen in the current search, resetting its state if it
+     * was last touched by an earlier one.
+     */
+    private void touch(int cell) {
+        if (generationOf[cell] != generation) {
+            generationOf[cell] = generation;
+            state[cell] = UNSEEN;
+        }
+    }
+
+    /**
+     * The original search, open list re-sorted on every add and linear scans
+     * for open/closed membership. Kept for score equivalence checks.
+     */
+    private TWPath findPathLegacy(int sx, int sy, int tx, int ty, int decay) {
+        // easy first check, if the destination is blocked, we can't get there
+        if (agent.getMemory().isCellBlocked(tx, ty, decay)) {
+            return null;
+        }
+
+        if (nodes == null) {
+            //create the nodes used to store information about plan and map
+            nodes = new Node[map.getxDimension()][map.getyDimension()];
+            for (int x = 0; x < map.getxDimension(); x++) {
+                for (int y = 0; y < map.getyDimension(); y++) {
+                    nodes[x][y] = new Node(x, y);
+                }
+            }
+        }
+
         // initial state for A*. The closed group is empty. Only the starting
         // tile is in the open list and it's cost is zero, i.e. we're already there
         nodes[sx][sy].cost = 0;
@@ -114,6 +266,7 @@ public class AstarPathGenerator{
 
             removeFromOpen(current);
             addToClosed(current);
+            map.getProfiler().count(TWProfiler.Counter.ASTAR_EXPANSIONS);
 
             // search through all the neighbours of the current node evaluating
             // them as next steps
@@ -0,0 +1,316 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package tileworld.planners;
+
+import sim.util.Int2D;
+import tileworld.agent.TWAgent;
+import tileworld.agent.TWBlockedCellListener;
+import tileworld.environment.TWDirection;
+import tileworld.environment.TWEnvironment;
+
+/**
+ * DStarLitePlanner
+ *
+ * Description: An incremental planner (D* Lite, Koenig and Likhachev 2002).
+ * The search runs backwards from the goal, so when the agent moves the tree
+ * stays valid and only the heuristic offset km changes. The planner listens
+ * to the agent's working memory; when a remembered cell becomes blocked or
+ * free only the cells whose distance to the goal actually changes are
+ * re-expanded on the next call, instead of running A* from scratch.
+ *
+ * Costs are 1 per move, blocked cells are those remembered as obstacles
+ * (TWAgentWorkingMemory#isCellBlocked with decay -1). Changing the goal
+ * throws the search tree away.
+ */
+public class DStarLitePlanner implements TWPathGenerator, TWPlanner, TWBlockedCellListener {
+
+    private static final double INFINITY = Double.POSITIVE_INFINITY;
+
+    /** The map being searched */
+    private TWEnvironment map;
+    /** Reference to this agent, for looking in memory */
+    private TWAgent agent;
+    /** Map dimensions, cell index is x * height + y */
+    private int width, height;
+    /** Cells whose rhs and g values are inconsistent */
+    private IndexedNodeHeap open;
+    /** Search generation that last initialised each cell, older cells have g = rhs = infinity */
+    private int[] generationOf;
+    private int generation = 0;
+    /** Distance estimates to the goal: g is the settled value, rhs the one step lookahead */
+    private double[] g;
+    private double[] rhs;
+    /** Cells reported changed by memory since the last search */
+    private int[] changed;
+    private int[] changedIn;
+    private int changedCount = 0;
+    /** Current goal, -1 if none */
+    private int goal = -1;
+    /** Start of the last search and the accumulated heuristic offset */
+    private int lastStart = -1;
+    private double km = 0;
+    /** Plan returned by generatePlan and consumed by execute */
+    private TWPath plan;
+
+    public DStarLitePlanner(TWEnvironment map, TWAgent agent) {
+        this.map = map;
+        this.agent = agent;
+        this.width = map.getxDimension();
+        this.height = map.getyDimension();
+        int cells = width * height;
+        open = new IndexedNodeHeap(cells);
+        generationOf = new int[cells];
+        g = new double[cells];
+        rhs = new double[cells];
+        changed = new int[cells];
+        changedIn = new int[cells];
+        agent.getMemory().addBlockedCellListener(this);
+    }
+
+    /**
+     * Sets the goal used by generatePlan, resetting the search if it moved.
+     */
+    public void setGoal(int tx, int ty) {
+        int cell = tx * height + ty;
+        if (cell != goal) {
+            reset(cell);
+        }
+    }
+
+    /**
+     * Returns a path from sx,sy to tx,ty. If the goal is the same as on the
+     * previous call the existing search is repaired rather than restarted.
+     *
+     * @see TWPathGenerator#findPath(int, int, int, int)
+     */
+    public TWPath findPath(int sx, int sy, int tx, int ty) {
+        setGoal(tx, ty);
+        int start = sx * height + sy;
+        if (start == goal || isBlocked(goal)) {
+            return null;
+        }
+
+        if (lastStart < 0) {
+            // first search towards this goal
+            lastStart = start;
+            open.insert(goal, heuristic(start, goal), 0);
+        } else if (lastStart != start) {
+            km += heuristic(lastStart, start);
+            int previous = lastStart;
+            lastStart = start;
+            // the start is never treated as blocked, so both ends may change
+            updateVertex(previous);
+            updateVertex(start);
+        }
+
+        applyChanges();
+        computeShortestPath(start);
+        return extractPath(start);
+    }
+
+    public void cellBlockedChanged(int x, int y, boolean blocked) {
+        if (goal < 0) {
+            return;
+        }
+        int cell = x * height + y;
+        if (changedIn[cell] != generation) {
+            changedIn[cell] = generation;
+            changed[changedCount++] = cell;
+        }
+    }
+
+    public TWPath generatePlan() {
+        if (goal < 0) {
+            return null;
+        }
+        plan = findPath(agent.getX(), agent.getY(), goal / height, goal % height);
+        return plan;
+    }
+
+    public boolean hasPlan() {
+        return plan != null && plan.hasNext();
+    }
+
+    public void voidPlan() {
+        plan = null;
+    }
+
+    public Int2D getCurrentGoal() {
+        return goal < 0 ? null : new Int2D(goal / height, goal % height);
+    }
+
+    public TWDirection execute() {
+        return hasPlan() ? plan.nextDirection() : TWDirection.Z;
+    }
+
+    private void reset(int newGoal) {
+        if (++generation == 0) {
+            java.util.Arrays.fill(generationOf, 0);
+            java.util.Arrays.fill(changedIn, 0);
+            generation = 1;
+        }
+        open.clear();
+        changedCount = 0;
+        goal = newGoal;
+        lastStart = -1;
+        km = 0;
+        plan = null;
+        touch(goal);
+        rhs[goal] = 0;
+    }
+
+    /**
+     * Every changed cell alters the cost of its own outgoing edges and of
+     * the edges into it, so it and its neighbours are re-evaluated.
+     */
+    private void applyChanges() {
+        for (int i = 0; i < changedCount; i++) {
+            int cell = changed[i];
+            changedIn[cell] = 0;
+            updateVertex(cell);
+            int cx = cell / height, cy = cell % height;
+            for (int d = 0; d < 4; d++) {
+                int n = neighbour(cx, cy, d);
+                if (n >= 0) {
+                    updateVertex(n);
+                }
+            }
+        }
+        changedCount = 0;
+    }
+
+    private void computeShortestPath(int start) {
+        touch(start);
+        while (!open.isEmpty()) {
+            double k1 = open.peekKey1(), k2 = open.peekKey2();
+            double s1 = Math.min(g[start], rhs[start]) + km;
+            double s2 = Math.min(g[start], rhs[start]);
+            if (!(k1 < s1 || (k1 == s1 && k2 < s2)) && rhs[start] == g[start]) {
+                break;
+            }
+            int u = open.peek();
+            double n1 = Math.min(g[u], rhs[u]) + heuristic(start, u) + km;
+            double n2 = Math.min(g[u], rhs[u]);
+            if (k1 < n1 || (k1 == n1 && k2 < n2)) {
+                open.insert(u, n1, n2);
+            } else if (g[u] > rhs[u]) {
+                open.poll();
+                g[u] = rhs[u];
+                updateNeighbours(u);
+            } else {
+                open.poll();
+                g[u] = INFINITY;
+                updateVertex(u);
+                updateNeighbours(u);
+            }
+        }
+    }
+
+    private void updateNeighbours(int u) {
+        int ux = u / height, uy = u % height;
+        for (int d = 0; d < 4; d++) {
+            int n = neighbour(ux, uy, d);
+            if (n >= 0) {
+                updateVertex(n);
+            }
+        }
+    }
+
+    private void updateVertex(int u) {
+        touch(u);
+        if (u != goal) {
+            double best = INFINITY;
+            // memory can hold an obstacle under the agent, it can still leave
+            if (u == lastStart || !isBlocked(u)) {
+                int ux = u / height, uy = u % height;
+                for (int d = 0; d < 4; d++) {
+                    int n = neighbour(ux, uy, d);
+                    if (n >= 0 && !isBlocked(n)) {
+                        touch(n);
+                        best = Math.min(best, 1 + g[n]);
+                    }
+                }
+            }
+            rhs[u] = best;
+        }
+        if (g[u] != rhs[u]) {
+            double k2 = Math.min(g[u], rhs[u]);
+            open.insert(u, k2 + heuristic(lastStart, u) + km, k2);
+        } else {
+            open.remove(u);
+        }
+    }
+
+    /**
+     * Walks from start towards the goal always stepping to the free
+     * neighbour with the lowest g value.
+     */
+    private TWPath extractPath(int start) {
+        if (g[start] == INFINITY) {
+            return null;
+        }
+        int length = (int) g[start];
+        int[] cells = new int[length + 1];
+        int current = start;
+        int n = 0;
+        cells[n++] = start;
+        while (current != goal && n <= length) {
+            int cx = current / height, cy = current % height;
+            int best = -1;
+            double bestCost = INFINITY;
+            for (int d = 0; d < 4; d++) {
+                int next = neighbour(cx, cy, d);
+                if (next >= 0 && !isBlocked(next)) {
+                    touch(next);
+                    if (g[next] < bestCost) {
+                        bestCost = g[next];
+                        best = next;
+                    }
+                }
+            }
+            if (best < 0) {
+                return null;
+            }
+            current = best;
+            if (current != goal) {
+                cells[n++] = current;
+            }
+        }
+        if (current != goal) {
+            return null;
+        }
+
+        TWPath path = new TWPath(goal / height, goal % height);
+        for (int i = n - 1; i >= 0; i--) {
+            path.prependStep(cells[i] / height, cells[i] % height);
+        }
+        return path;
+    }
+
+    private void touch(int cell) {
+        if (generationOf[cell] != generation) {
+            generationOf[cell] = generation;
+            g[cell] = INFINITY;
+            rhs[cell] = INFINITY;
+        }
+    }
+
+    /**
+     * @return index of the neighbour in direction d (W, N, S, E), -1 if off the map
+     */
+    private int neighbour(int x, int y, int d) {
+        int xp = x + (d == 0 ? -1 : (d == 3 ? 1 : 0));
+        int yp = y + (d == 1 ? -1 : (d == 2 ? 1 : 0));
+        return map.isInBounds(xp, yp) ? xp * height + yp : -1;
+    }
+
+    private boolean isBlocked(int cell) {
+        return agent.getMemory().isCellBlocked(cell / height, cell % height, -1);
+    }
+
+    private double heuristic(int a, int b) {
+        return Math.abs(a / height - b / height) + Math.abs(a % height - b % height);
+    }
+}
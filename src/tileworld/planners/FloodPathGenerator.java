@@ -0,0 +1,151 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package tileworld.planners;
+
+import java.util.Collection;
+
+import sim.util.Int2D;
+import tileworld.agent.TWAgent;
+import tileworld.environment.TWEnvironment;
+
+/**
+ * FloodPathGenerator
+ *
+ * Description: One-to-many path search. A single breadth first flood from
+ * the agent (every move costs the same, so this is Dijkstra without the
+ * heap) answers path length and path reconstruction for every target at
+ * once, instead of running one A* per remembered tile and hole. The flood
+ * stops as soon as every requested target has been reached.
+ *
+ * Blocked cells are taken from the agent's memory with the same decay rule
+ * AstarPathGenerator uses, so a target is reachable here exactly when A*
+ * would find a path to it, and the path lengths are the same.
+ */
+public class FloodPathGenerator {
+
+    /** The map being searched */
+    private TWEnvironment map;
+    /** Reference to this agent, for looking in memory */
+    private TWAgent agent;
+    /** Height of the map, cell index is x * height + y */
+    private int height;
+    /** BFS queue of cell indices */
+    private int[] queue;
+    /** Search generation in which each cell was reached */
+    private int[] reachedIn;
+    /** Search generation in which each cell was requested as a target */
+    private int[] targetIn;
+    /** Parent of each reached cell and its distance from the start */
+    private int[] parentOf;
+    private int[] distanceOf;
+    /** Incremented for every flood so the arrays never need clearing */
+    private int generation = 0;
+    /** Start cell of the last flood */
+    private int start = -1;
+
+    public FloodPathGenerator(TWEnvironment map, TWAgent agent) {
+        this.map = map;
+        this.agent = agent;
+        this.height = map.getyDimension();
+        int cells = map.getxDimension() * height;
+        queue = new int[cells];
+        reachedIn = new int[cells];
+        targetIn = new int[cells];
+        parentOf = new int[cells];
+        distanceOf = new int[cells];
+    }
+
+    /**
+     * Floods outwards from sx,sy until all targets have been reached or no
+     * more cells can be reached. Query the result with getPath/getPathLength.
+     *
+     * @param sx x-coordinate of start location
+     * @param sy y-coordinate of start location
+     * @param decay passed on to TWAgentWorkingMemory#isCellBlocked
+     * @param targets cells we want paths to
+     */
+    public void flood(int sx, int sy, int decay, Collection<Int2D> targets) {
+        if (++generation == 0) {
+            java.util.Arrays.fill(reachedIn, 0);
+            java.util.Arrays.fill(targetIn, 0);
+            generation = 1;
+        }
+        start = sx * height + sy;
+
+        int remaining = 0;
+        for (Int2D t : targets) {
+            int cell = t.x * height + t.y;
+            // blocked targets and the start itself can never get a path
+            if (targetIn[cell] != generation && cell != start
+                    && !agent.getMemory().isCellBlocked(t.x, t.y, decay)) {
+                targetIn[cell] = generation;
+                remaining++;
+            }
+        }
+
+        reachedIn[start] = generation;
+        distanceOf[start] = 0;
+        int head = 0, tail = 0;
+        queue[tail++] = start;
+        while (head < tail && remaining > 0) {
+            int current = queue[head++];
+            int cx = current / height;
+            int cy = current - cx * height;
+            for (int d = 0; d < 4; d++) {
+                int xp = cx + (d == 0 ? -1 : (d == 3 ? 1 : 0));
+                int yp = cy + (d == 1 ? -1 : (d == 2 ? 1 : 0));
+                if (!map.isValidLocation(xp, yp)) {
+                    continue;
+                }
+                int next = xp * height + yp;
+                if (reachedIn[next] == generation || agent.getMemory().isCellBlocked(xp, yp, decay)) {
+                    continue;
+                }
+                reachedIn[next] = generation;
+                parentOf[next] = current;
+                distanceOf[next] = distanceOf[current] + 1;
+                queue[tail++] = next;
+                if (targetIn[next] == generation) {
+                    remaining--;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the last flood found a path to x,y
+     */
+    public boolean isReachable(int x, int y) {
+        int cell = x * height + y;
+        return cell != start && reachedIn[cell] == generation;
+    }
+
+    /**
+     * @return the number of moves on the shortest path to x,y, -1 if unreachable
+     */
+    public int getPathLength(int x, int y) {
+        return isReachable(x, y) ? distanceOf[x * height + y] : -1;
+    }
+
+    /**
+     * Rebuilds the path to x,y found by the last flood, in the same form
+     * AstarPathGenerator#findPath returns.
+     *
+     * @return the path or null if x,y was not reached
+     */
+    public TWPath getPath(int x, int y) {
+        if (!isReachable(x, y)) {
+            return null;
+        }
+        TWPath path = new TWPath(x, y);
+        int step = parentOf[x * height + y];
+        while (step != start) {
+            path.prependStep(step / height, step % height);
+            step = parentOf[step];
+        }
+        path.prependStep(start / height, start % height);
+        return path;
+    }
+}
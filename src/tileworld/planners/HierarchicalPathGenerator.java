@@ -0,0 +1,375 @@
+package tileworld.planners;
+
+import tileworld.agent.TWAgent;
+import tileworld.agent.TWBlockedCellListener;
+import tileworld.environment.TWEnvironment;
+
+/**
+ * HierarchicalPathGenerator
+ *
+ * Description: Hierarchical A* (HPA*, Botea, Mueller and Schaeffer 2004)
+ * for maps too big to search cell by cell. The grid is cut into square
+ * clusters of the given size (UtilityAgent2 uses 2r+1, the size of its
+ * explore checkpoints; clusters on the far edges may be smaller). Where a
+ * run of cells is free on both sides of a cluster border the middle pair is
+ * an entrance, and the entrance cells of a cluster are joined by their move
+ * distance inside it. A search links start and target to their clusters'
+ * entrances, runs A* over that small graph and then refines only the first
+ * hop of the abstract route: the returned path goes to the first entrance
+ * and one step over the border, or straight to the target when it lies in
+ * the start's cluster. The agent plans again when it gets there.
+ *
+ * Blocked cells are those remembered as obstacles (decay -1). The generator
+ * listens to the agent's working memory and rebuilds only the clusters a
+ * change touches, on the next search. All storage is primitive and
+ * allocated up front apart from the per cluster entrance tables.
+ */
+public class HierarchicalPathGenerator implements TWPathGenerator, TWBlockedCellListener {
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+    /** Bit of each border in crossings, in the W, N, S, E neighbour order */
+    private static final int[] DX = {-1, 0, 0, 1};
+    private static final int[] DY = {0, -1, 1, 0};
+
+    private TWEnvironment map;
+    private TWAgent agent;
+    /** Map dimensions, cell index is x * height + y */
+    private int width, height;
+    /** Cluster side and number of clusters along each axis */
+    private int size, columns, rows;
+
+    /** Entrance cells of each cluster and their distances, nodes.length^2, row major */
+    private int[][] nodes;
+    private int[][] distances;
+    private boolean[] dirty;
+    private int[] dirtyList;
+    private int dirtyCount;
+    /** Index of each entrance cell in its cluster's nodes, -1 for other cells */
+    private int[] nodeIndex;
+    /** Bit d set if the cell is an entrance over its cluster's border in direction d */
+    private byte[] crossings;
+
+    /** Abstract search state, stamped per search */
+    private IndexedNodeHeap open;
+    private int[] searchedIn;
+    private int search = 0;
+    private int[] cost;
+    private int[] parent;
+
+    /** Breadth first search inside one cluster, indexed by cell within the cluster */
+    private int[] bfsQueue;
+    private int[] bfsDistance;
+    private int[] bfsParent;
+    /** Distances from the start and to the target within their clusters */
+    private int[] startDistance;
+    private int[] startParent;
+    private int[] targetDistance;
+    /** Path cells, start first */
+    private int[] route;
+
+    public HierarchicalPathGenerator(TWEnvironment map, TWAgent agent, int clusterSize) {
+        this.map = map;
+        this.agent = agent;
+        this.width = map.getxDimension();
+        this.height = map.getyDimension();
+        this.size = clusterSize;
+        this.columns = (width + size - 1) / size;
+        this.rows = (height + size - 1) / size;
+        int cells = width * height;
+        int clusters = columns * rows;
+        nodes = new int[clusters][];
+        distances = new int[clusters][];
+        dirty = new boolean[clusters];
+        dirtyList = new int[clusters];
+        for (int c = 0; c < clusters; c++) {
+            markDirty(c);
+        }
+        nodeIndex = new int[cells];
+        java.util.Arrays.fill(nodeIndex, -1);
+        crossings = new byte[cells];
+        open = new IndexedNodeHeap(cells);
+        searchedIn = new int[cells];
+        cost = new int[cells];
+        parent = new int[cells];
+        bfsQueue = new int[size * size];
+        bfsDistance = new int[size * size];
+        bfsParent = new int[size * size];
+        startDistance = new int[size * size];
+        startParent = new int[size * size];
+        targetDistance = new int[size * size];
+        route = new int[cells];
+        agent.getMemory().addBlockedCellListener(this);
+    }
+
+    /**
+     * @return a path from sx,sy towards tx,ty: to the target if it is in the
+     * same cluster, otherwise into the next cluster on the abstract route.
+     * Null if the target is blocked or cannot be reached.
+     *
+     * @see TWPathGenerator#findPath(int, int, int, int)
+     */
+    public TWPath findPath(int sx, int sy, int tx, int ty) {
+        int start = sx * height + sy;
+        int target = tx * height + ty;
+        if (start == target || isBlocked(target)) {
+            return null;
+        }
+        rebuildDirty();
+
+        int startCluster = clusterOf(start);
+        int targetCluster = clusterOf(target);
+        bfs(startCluster, start);
+        System.arraycopy(bfsDistance, 0, startDistance, 0, bfsDistance.length);
+        System.arraycopy(bfsParent, 0, startParent, 0, bfsParent.length);
+        if (startCluster == targetCluster && startDistance[local(target)] != UNREACHABLE) {
+            return pathInCluster(start, target, -1);
+        }
+        bfs(targetCluster, target);
+        System.arraycopy(bfsDistance, 0, targetDistance, 0, bfsDistance.length);
+
+        int first = abstractSearch(start, target, startCluster, targetCluster);
+        if (first < 0) {
+            return null;
+        }
+        // first is across a border from the start, or in the start's cluster
+        if (clusterOf(first) != startCluster) {
+            return pathInCluster(start, start, first);
+        }
+        if (first == target) {
+            return pathInCluster(start, target, -1);
+        }
+        int next = route[1];
+        return pathInCluster(start, first, clusterOf(next) != startCluster ? next : -1);
+    }
+
+    public void cellBlockedChanged(int x, int y, boolean blocked) {
+        int cx = x / size, cy = y / size;
+        markDirty(cx * rows + cy);
+        // entrances on a border depend on the cells on both sides of it
+        if (x % size == 0 && cx > 0) {
+            markDirty((cx - 1) * rows + cy);
+        }
+        if ((x % size == size - 1) && cx < columns - 1) {
+            markDirty((cx + 1) * rows + cy);
+        }
+        if (y % size == 0 && cy > 0) {
+            markDirty(cx * rows + cy - 1);
+        }
+        if ((y % size == size - 1) && cy < rows - 1) {
+            markDirty(cx * rows + cy + 1);
+        }
+    }
+
+    private void markDirty(int cluster) {
+        if (!dirty[cluster]) {
+            dirty[cluster] = true;
+            dirtyList[dirtyCount++] = cluster;
+        }
+    }
+
+    private void rebuildDirty() {
+        for (int i = 0; i < dirtyCount; i++) {
+            rebuild(dirtyList[i]);
+            dirty[dirtyList[i]] = false;
+        }
+        dirtyCount = 0;
+    }
+
+    /**
+     * Finds the entrances of a cluster and the distances between them.
+     */
+    private void rebuild(int cluster) {
+        if (nodes[cluster] != null) {
+            for (int cell : nodes[cluster]) {
+                nodeIndex[cell] = -1;
+                crossings[cell] = 0;
+            }
+        }
+        int x0 = (cluster / rows) * size, y0 = (cluster % rows) * size;
+        int x1 = Math.min(x0 + size, width) - 1, y1 = Math.min(y0 + size, height) - 1;
+        int count = 0;
+        int[] found = bfsQueue;
+        for (int d = 0; d < 4; d++) {
+            // the border's cells inside the cluster, walking along it
+            int bx = d == 0 ? x0 : (d == 3 ? x1 : -1);
+            int by = d == 1 ? y0 : (d == 2 ? y1 : -1);
+            int ox = bx + DX[d], oy = by + DY[d];
+            if ((bx >= 0 && (ox < 0 || ox >= width)) || (by >= 0 && (oy < 0 || oy >= height))) {
+                continue;
+            }
+            int length = bx >= 0 ? y1 - y0 + 1 : x1 - x0 + 1;
+            int runStart = -1;
+            for (int i = 0; i <= length; i++) {
+                boolean free = false;
+                if (i < length) {
+                    int x = bx >= 0 ? bx : x0 + i, y = by >= 0 ? by : y0 + i;
+                    free = !isBlocked(x * height + y) && !isBlocked((x + DX[d]) * height + y + DY[d]);
+                }
+                if (free && runStart < 0) {
+                    runStart = i;
+                } else if (!free && runStart >= 0) {
+                    int mid = (runStart + i - 1) / 2;
+                    int cell = bx >= 0 ? bx * height + y0 + mid : (x0 + mid) * height + by;
+                    if (nodeIndex[cell] < 0) {
+                        nodeIndex[cell] = count;
+                        found[count++] = cell;
+                    }
+                    crossings[cell] |= 1 << d;
+                    runStart = -1;
+                }
+            }
+        }
+        int[] clusterNodes = new int[count];
+        System.arraycopy(found, 0, clusterNodes, 0, count);
+        int[] clusterDistances = new int[count * count];
+        for (int i = 0; i < count; i++) {
+            bfs(cluster, clusterNodes[i]);
+            for (int j = 0; j < count; j++) {
+                clusterDistances[i * count + j] = bfsDistance[local(clusterNodes[j])];
+            }
+        }
+        nodes[cluster] = clusterNodes;
+        distances[cluster] = clusterDistances;
+    }
+
+    /**
+     * A* from start to target over the entrances.
+     *
+     * @return the first cell after the start on the abstract route, route
+     * holds the route from there on; -1 if there is none
+     */
+    private int abstractSearch(int start, int target, int startCluster, int targetCluster) {
+        if (++search == 0) {
+            java.util.Arrays.fill(searchedIn, 0);
+            search = 1;
+        }
+        open.clear();
+        visit(start, 0, -1, target);
+        while (!open.isEmpty()) {
+            int v = open.poll();
+            if (v == target) {
+                break;
+            }
+            int cluster = clusterOf(v);
+            int[] clusterNodes = nodes[cluster];
+            if (v == start) {
+                for (int cell : clusterNodes) {
+                    int d = startDistance[local(cell)];
+                    if (d != UNREACHABLE) {
+                        visit(cell, d, v, target);
+                    }
+                }
+            } else if (nodeIndex[v] >= 0) {
+                int i = nodeIndex[v];
+                int n = clusterNodes.length;
+                for (int j = 0; j < n; j++) {
+                    int d = distances[cluster][i * n + j];
+                    if (d != UNREACHABLE && j != i) {
+                        visit(clusterNodes[j], cost[v] + d, v, target);
+                    }
+                }
+            }
+            int vx = v / height, vy = v - vx * height;
+            for (int d = 0; d < 4; d++) {
+                if ((crossings[v] & (1 << d)) != 0) {
+                    visit((vx + DX[d]) * height + vy + DY[d], cost[v] + 1, v, target);
+                }
+            }
+            if (cluster == targetCluster && targetDistance[local(v)] != UNREACHABLE) {
+                visit(target, cost[v] + targetDistance[local(v)], v, target);
+            }
+        }
+        if (searchedIn[target] != search || cost[target] == UNREACHABLE) {
+            return -1;
+        }
+        int length = 0;
+        for (int v = target; v != start; v = parent[v]) {
+            length++;
+        }
+        for (int v = target, i = length - 1; v != start; v = parent[v], i--) {
+            route[i] = v;
+        }
+        return route[0];
+    }
+
+    private void visit(int cell, int g, int from, int target) {
+        if (searchedIn[cell] != search) {
+            searchedIn[cell] = search;
+            cost[cell] = UNREACHABLE;
+        }
+        if (g < cost[cell]) {
+            cost[cell] = g;
+            parent[cell] = from;
+            int cx = cell / height, cy = cell - cx * height;
+            int tx = target / height, ty = target - tx * height;
+            open.insert(cell, g + Math.abs(cx - tx) + Math.abs(cy - ty));
+        }
+    }
+
+    /**
+     * Breadth first search from cell within cluster, into bfsDistance and bfsParent.
+     */
+    private void bfs(int cluster, int from) {
+        int x0 = (cluster / rows) * size, y0 = (cluster % rows) * size;
+        int x1 = Math.min(x0 + size, width) - 1, y1 = Math.min(y0 + size, height) - 1;
+        java.util.Arrays.fill(bfsDistance, UNREACHABLE);
+        int head = 0, tail = 0;
+        bfsDistance[local(from)] = 0;
+        bfsParent[local(from)] = -1;
+        bfsQueue[tail++] = from;
+        while (head < tail) {
+            int v = bfsQueue[head++];
+            int vx = v / height, vy = v - vx * height;
+            for (int d = 0; d < 4; d++) {
+                int x = vx + DX[d], y = vy + DY[d];
+                if (x < x0 || x > x1 || y < y0 || y > y1) {
+                    continue;
+                }
+                int u = x * height + y;
+                if (bfsDistance[local(u)] == UNREACHABLE && !isBlocked(u)) {
+                    bfsDistance[local(u)] = bfsDistance[local(v)] + 1;
+                    bfsParent[local(u)] = v;
+                    bfsQueue[tail++] = u;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the path from start to end inside the start's cluster (start
+     * search parents), then one more step to over if it is not -1
+     */
+    private TWPath pathInCluster(int start, int end, int over) {
+        // route[0] is the last cell of the path, the start comes last
+        int length = 0;
+        if (over >= 0) {
+            route[length++] = over;
+        }
+        for (int v = end; v != start; v = startParent[local(v)]) {
+            route[length++] = v;
+        }
+        route[length++] = start;
+        TWPath path = new TWPath(route[0] / height, route[0] % height);
+        for (int i = 1; i < length; i++) {
+            path.prependStep(route[i] / height, route[i] % height);
+        }
+        return path;
+    }
+
+    private int clusterOf(int cell) {
+        int x = cell / height;
+        return (x / size) * rows + (cell - x * height) / size;
+    }
+
+    /**
+     * @return index of cell within its cluster, for the bfs arrays
+     */
+    private int local(int cell) {
+        int x = cell / height;
+        return (x % size) * size + (cell - x * height) % size;
+    }
+
+    private boolean isBlocked(int cell) {
+        return agent.getMemory().isCellBlocked(cell / height, cell % height, -1);
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package tileworld.planners;
+
+/**
+ * IndexedNodeHeap
+ *
+ * Description: A binary min-heap over grid cell indices (x * height + y)
+ * with decrease-key. Each cell carries a primary and a secondary key plus an
+ * insertion sequence number; ties on both keys are broken by insertion order,
+ * which is exactly the order the old SortedList (a stable sort after every
+ * add) produced. Searches that only need one key pass 0 as the second.
+ *
+ * All storage is primitive and allocated once, clearing only touches the
+ * cells currently in the heap.
+ */
+class IndexedNodeHeap {
+
+    /** Cell indices, heap ordered */
+    private final int[] heap;
+    /** Position of each cell in heap, -1 if not in the heap */
+    private final int[] position;
+    /** Primary key of each cell */
+    private final double[] key1;
+    /** Secondary key of each cell */
+    private final double[] key2;
+    /** Insertion order of each cell, used to break ties */
+    private final long[] order;
+    /** Number of cells in the heap */
+    private int size;
+    /** Next insertion sequence number */
+    private long sequence;
+
+    /**
+     * Create a heap able to hold every cell of the grid
+     *
+     * @param capacity The number of cells in the grid
+     */
+    IndexedNodeHeap(int capacity) {
+        heap = new int[capacity];
+        position = new int[capacity];
+        key1 = new double[capacity];
+        key2 = new double[capacity];
+        order = new long[capacity];
+        java.util.Arrays.fill(position, -1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int node) {
+        return position[node] >= 0;
+    }
+
+    /**
+     * @return the cell with the smallest key, without removing it
+     */
+    int peek() {
+        return heap[0];
+    }
+
+    double peekKey1() {
+        return key1[heap[0]];
+    }
+
+    double peekKey2() {
+        return key2[heap[0]];
+    }
+
+    /**
+     * Removes and returns the cell with the smallest key
+     */
+    int poll() {
+        int top = heap[0];
+        removeAt(0);
+        return top;
+    }
+
+    /**
+     * Add a cell, or re-key it if it is already present. Either way the cell
+     * counts as newly inserted for tie breaking.
+     */
+    void insert(int node, double k1, double k2) {
+        key1[node] = k1;
+        key2[node] = k2;
+        order[node] = sequence++;
+        int i = position[node];
+        if (i < 0) {
+            i = size++;
+            heap[i] = node;
+            position[node] = i;
+            siftUp(i);
+        } else {
+            siftUp(i);
+            siftDown(position[node]);
+        }
+    }
+
+    void insert(int node, double k1) {
+        insert(node, k1, 0);
+    }
+
+    /**
+     * Remove a cell if it is present
+     */
+    void remove(int node) {
+        int i = position[node];
+        if (i >= 0) {
+            removeAt(i);
+        }
+    }
+
+    /**
+     * Empty the heap, cost is proportional to the number of cells in it
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+        sequence = 0;
+    }
+
+    private void removeAt(int i) {
+        int node = heap[i];
+        position[node] = -1;
+        size--;
+        if (i == size) {
+            return;
+        }
+        int last = heap[size];
+        heap[i] = last;
+        position[last] = i;
+        siftUp(i);
+        siftDown(position[last]);
+    }
+
+    private boolean less(int a, int b) {
+        if (key1[a] != key1[b]) {
+            return key1[a] < key1[b];
+        }
+        if (key2[a] != key2[b]) {
+            return key2[a] < key2[b];
+        }
+        return order[a] < order[b];
+    }
+
+    private void siftUp(int i) {
+        int node = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int p = heap[parent];
+            if (!less(node, p)) {
+                break;
+            }
+            heap[i] = p;
+            position[p] = i;
+            i = parent;
+        }
+        heap[i] = node;
+        position[node] = i;
+    }
+
+    private void siftDown(int i) {
+        int node = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && less(heap[right], heap[child])) {
+                child = right;
+            }
+            int c = heap[child];
+            if (!less(c, node)) {
+                break;
+            }
+            heap[i] = c;
+            position[c] = i;
+            i = child;
+        }
+        heap[i] = node;
+        position[node] = i;
+    }
+}
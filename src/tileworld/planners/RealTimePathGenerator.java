@@ -0,0 +1,210 @@
+package tileworld.planners;
+
+import tileworld.agent.TWAgent;
+import tileworld.environment.TWEnvironment;
+import tileworld.environment.TWProfiler;
+
+/**
+ * RealTimePathGenerator
+ *
+ * Description: Real-time adaptive A* (RTAA*, Koenig and Likhachev 2006),
+ * a search whose cost per call is capped. Each call runs A* from the agent
+ * for at most a given number of expansions, or until a time budget runs
+ * out. If the target is reached its path is returned, as AstarPathGenerator
+ * would. Otherwise the path leads to the best cell on the open list, and
+ * every expanded cell learns a better heuristic: the f value of that cell
+ * minus the cell's own cost. Cells that only looked good because of an
+ * obstacle in the way score worse on the next call, so an agent that
+ * follows the paths and searches again gets to a reachable target. The
+ * learnt values hold for one target and are dropped when it changes.
+ *
+ * A target blocked off from the start is found out when one call expands
+ * every cell reachable from the start, or when the learnt values grow past
+ * the number of cells on the map, more than any path could take. Until
+ * then the agent keeps walking towards it, but no call costs more than the
+ * budget.
+ *
+ * The base heuristic is the Manhattan distance, which is exact on an empty
+ * grid with 4 moves. Learnt values stay consistent while obstacles only
+ * appear. Ones that disappear (decay) can leave them too high, which only
+ * makes the paths longer.
+ */
+public class RealTimePathGenerator implements TWPathGenerator {
+
+    /** Cell state values, valid only for the current search */
+    private static final byte UNSEEN = 0, OPEN = 1, CLOSED = 2;
+
+    private TWEnvironment map;
+    private TWAgent agent;
+    /** Map dimensions, cell index is x * height + y */
+    private int width, height;
+    /** Most cells a call may expand */
+    private int maxExpansions;
+    /** Most time a call may take in ns, 0 for no limit */
+    private long maxNanos;
+
+    private IndexedNodeHeap open;
+    /** Search that last touched each cell, anything older is unseen */
+    private int[] searchedIn;
+    private byte[] state;
+    private int search = 0;
+    private int[] cost;
+    private int[] parent;
+    /** Cells expanded by the current search, in order */
+    private int[] closed;
+
+    /** Learnt heuristic of each cell, valid where learntFor is the current target's epoch */
+    private int[] learnt;
+    private int[] learntFor;
+    private int epoch = 0;
+    private int goal = -1;
+
+    /**
+     * @param maxExpansions cells a call may expand, at least 1
+     * @param maxNanos time a call may take in ns, checked every 64 expansions, 0 for no limit
+     */
+    public RealTimePathGenerator(TWEnvironment map, TWAgent agent, int maxExpansions, long maxNanos) {
+        this.map = map;
+        this.agent = agent;
+        this.width = map.getxDimension();
+        this.height = map.getyDimension();
+        this.maxExpansions = Math.max(maxExpansions, 1);
+        this.maxNanos = maxNanos;
+        int cells = width * height;
+        open = new IndexedNodeHeap(cells);
+        searchedIn = new int[cells];
+        state = new byte[cells];
+        cost = new int[cells];
+        parent = new int[cells];
+        closed = new int[cells];
+        learnt = new int[cells];
+        learntFor = new int[cells];
+    }
+
+    /**
+     * Searches around all remembered obstacles (decay -1).
+     */
+    public TWPath findPath(int sx, int sy, int tx, int ty) {
+        return findPath(sx, sy, tx, ty, -1);
+    }
+
+    /**
+     * @return a path to tx,ty, or towards it if the budget ran out first,
+     * null if the target is blocked or cannot be reached from the start
+     */
+    public TWPath findPath(int sx, int sy, int tx, int ty, int decay) {
+        TWProfiler profiler = map.getProfiler();
+        long begin = System.nanoTime();
+        TWPath path = search(sx, sy, tx, ty, decay, begin);
+        profiler.record(TWProfiler.Phase.PATH, System.nanoTime() - begin);
+        profiler.count(TWProfiler.Counter.PATHS);
+        return path;
+    }
+
+    private TWPath search(int sx, int sy, int tx, int ty, int decay, long begin) {
+        if (agent.getMemory().isCellBlocked(tx, ty, decay)) {
+            return null;
+        }
+        int start = sx * height + sy;
+        int target = tx * height + ty;
+        if (start == target) {
+            return null;
+        }
+        if (target != goal) {
+            goal = target;
+            if (++epoch == 0) {
+                java.util.Arrays.fill(learntFor, 0);
+                epoch = 1;
+            }
+        }
+        if (++search == 0) {
+            java.util.Arrays.fill(searchedIn, 0);
+            search = 1;
+        }
+        open.clear();
+        touch(start);
+        cost[start] = 0;
+        state[start] = OPEN;
+        open.insert(start, heuristic(start), heuristic(start));
+
+        int expanded = 0;
+        long deadline = maxNanos > 0 ? begin + maxNanos : Long.MAX_VALUE;
+        while (!open.isEmpty()) {
+            int current = open.peek();
+            if (current == target || expanded >= maxExpansions
+                    || ((expanded & 63) == 63 && System.nanoTime() >= deadline)) {
+                break;
+            }
+            open.poll();
+            state[current] = CLOSED;
+            closed[expanded++] = current;
+
+            int cx = current / height;
+            int cy = current - cx * height;
+            // W, N, S, E as in the other searches
+            for (int d = 0; d < 4; d++) {
+                int xp = cx + (d == 0 ? -1 : (d == 3 ? 1 : 0));
+                int yp = cy + (d == 1 ? -1 : (d == 2 ? 1 : 0));
+                if (xp < 0 || yp < 0 || xp >= width || yp >= height
+                        || agent.getMemory().isCellBlocked(xp, yp, decay)) {
+                    continue;
+                }
+                int neighbour = xp * height + yp;
+                touch(neighbour);
+                int next = cost[current] + 1;
+                if (state[neighbour] == UNSEEN || (state[neighbour] == OPEN && next < cost[neighbour])) {
+                    cost[neighbour] = next;
+                    parent[neighbour] = current;
+                    state[neighbour] = OPEN;
+                    int h = heuristic(neighbour);
+                    open.insert(neighbour, next + h, h);
+                }
+            }
+        }
+
+        map.getProfiler().count(TWProfiler.Counter.ASTAR_EXPANSIONS, expanded);
+
+        // every cell reachable from the start was expanded without meeting the target
+        if (open.isEmpty()) {
+            return null;
+        }
+        int best = open.peek();
+        if (best != target) {
+            map.getProfiler().count(TWProfiler.Counter.SEARCH_CUTOFFS);
+        }
+        int f = cost[best] + heuristic(best);
+        // no path is longer than the map has cells, so the target is cut off
+        if (f >= width * height) {
+            return null;
+        }
+        for (int i = 0; i < expanded; i++) {
+            int cell = closed[i];
+            learnt[cell] = f - cost[cell];
+            learntFor[cell] = epoch;
+        }
+
+        TWPath path = new TWPath(best / height, best % height);
+        for (int step = parent[best]; step != start; step = parent[step]) {
+            path.prependStep(step / height, step % height);
+        }
+        path.prependStep(sx, sy);
+        return path;
+    }
+
+    /**
+     * @return the learnt heuristic of cell for the current target, at least its Manhattan distance
+     */
+    private int heuristic(int cell) {
+        int cx = cell / height, cy = cell - cx * height;
+        int gx = goal / height, gy = goal - gx * height;
+        int h = Math.abs(gx - cx) + Math.abs(gy - cy);
+        return learntFor[cell] == epoch ? Math.max(h, learnt[cell]) : h;
+    }
+
+    private void touch(int cell) {
+        if (searchedIn[cell] != search) {
+            searchedIn[cell] = search;
+            state[cell] = UNSEEN;
+        }
+    }
+}
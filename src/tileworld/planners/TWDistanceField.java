@@ -0,0 +1,243 @@
+package tileworld.planners;
+
+import tileworld.agent.TWAgentWorkingMemory;
+import tileworld.agent.TWBlockedCellListener;
+import tileworld.environment.TWEnvironment;
+
+/**
+ * TWDistanceField
+ *
+ * Description: Exact move counts from every cell to one root cell (the fuel
+ * station) around the obstacles remembered in an agent's working memory
+ * (TWAgentWorkingMemory#isCellBlocked with decay -1). Built once by a
+ * breadth first search from the root and then kept up to date: the field
+ * listens to the memory and, before the next query, repairs only the cells
+ * whose distance the remembered changes affect.
+ *
+ * A newly blocked cell invalidates the cells that have no other neighbour
+ * one move closer to the root, and so on outwards. The invalidated cells,
+ * and any newly freed ones, are then given the best distance of their valid
+ * neighbours and relaxed outwards in distance order. When nothing changed a
+ * query is an array lookup, and a path to the root is read off by stepping
+ * to a neighbour one move closer, in time proportional to its length.
+ */
+public class TWDistanceField implements TWBlockedCellListener {
+
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private TWAgentWorkingMemory memory;
+    /** Map dimensions, cell index is x * height + y */
+    private int width, height;
+    /** Moves to the root, UNREACHABLE if there is no way */
+    private int[] distance;
+    /** Cells whose distance went down and must be relaxed, keyed by distance */
+    private IndexedNodeHeap open;
+    /** Cells reported changed by memory since the last repair */
+    private int[] changed;
+    private boolean[] isChanged;
+    private int changedCount = 0;
+    /** Cells invalidated by the current repair, also used for path cells */
+    private int[] queue;
+    private int[] invalidIn;
+    private int repair = 0;
+    /** Root cell, -1 until setRoot */
+    private int root = -1;
+
+    public TWDistanceField(TWEnvironment map, TWAgentWorkingMemory memory) {
+        this.memory = memory;
+        this.width = map.getxDimension();
+        this.height = map.getyDimension();
+        int cells = width * height;
+        distance = new int[cells];
+        open = new IndexedNodeHeap(cells);
+        changed = new int[cells];
+        isChanged = new boolean[cells];
+        queue = new int[cells];
+        invalidIn = new int[cells];
+        memory.addBlockedCellListener(this);
+    }
+
+    /**
+     * Roots the field at x,y, rebuilding it if the root moved.
+     */
+    public void setRoot(int x, int y) {
+        int cell = x * height + y;
+        if (cell == root) {
+            return;
+        }
+        root = cell;
+        for (int i = 0; i < changedCount; i++) {
+            isChanged[changed[i]] = false;
+        }
+        changedCount = 0;
+        java.util.Arrays.fill(distance, UNREACHABLE);
+        open.clear();
+        distance[root] = 0;
+        open.insert(root, 0);
+        propagate();
+    }
+
+    /**
+     * @return moves from x,y to the root, UNREACHABLE if blocked off
+     */
+    public int distance(int x, int y) {
+        repair();
+        return distance[x * height + y];
+    }
+
+    /**
+     * @return a shortest path from x,y to the root, null if there is none or x,y is the root
+     */
+    public TWPath getPath(int x, int y) {
+        repair();
+        int cell = x * height + y;
+        int length = distance[cell];
+        if (length == UNREACHABLE || length == 0) {
+            return null;
+        }
+        for (int i = 0; i < length; i++) {
+            queue[i] = cell;
+            cell = closerNeighbour(cell);
+        }
+        TWPath path = new TWPath(root / height, root % height);
+        for (int i = length - 1; i >= 0; i--) {
+            path.prependStep(queue[i] / height, queue[i] % height);
+        }
+        return path;
+    }
+
+    public void cellBlockedChanged(int x, int y, boolean blocked) {
+        if (root < 0) {
+            return;
+        }
+        int cell = x * height + y;
+        if (!isChanged[cell]) {
+            isChanged[cell] = true;
+            changed[changedCount++] = cell;
+        }
+    }
+
+    private void repair() {
+        if (changedCount == 0) {
+            return;
+        }
+        if (++repair == 0) {
+            java.util.Arrays.fill(invalidIn, 0);
+            repair = 1;
+        }
+        // invalidate everything that only reached the root through a newly blocked cell
+        int head = 0, tail = 0;
+        for (int i = 0; i < changedCount; i++) {
+            int cell = changed[i];
+            if (isBlocked(cell) && distance[cell] != UNREACHABLE) {
+                invalidIn[cell] = repair;
+                queue[tail++] = cell;
+            }
+        }
+        while (head < tail) {
+            int v = queue[head++];
+            int vx = v / height, vy = v - vx * height;
+            for (int d = 0; d < 4; d++) {
+                int u = neighbour(vx, vy, d);
+                if (u < 0 || invalidIn[u] == repair || distance[u] != distance[v] + 1 || hasSupport(u)) {
+                    continue;
+                }
+                invalidIn[u] = repair;
+                queue[tail++] = u;
+            }
+        }
+        for (int i = 0; i < tail; i++) {
+            distance[queue[i]] = UNREACHABLE;
+        }
+        // re-derive the invalidated and newly freed cells from their neighbours
+        for (int i = 0; i < tail; i++) {
+            seed(queue[i]);
+        }
+        for (int i = 0; i < changedCount; i++) {
+            seed(changed[i]);
+            isChanged[changed[i]] = false;
+        }
+        changedCount = 0;
+        propagate();
+    }
+
+    /**
+     * @return true if a valid, free neighbour of cell is one move closer to the root
+     */
+    private boolean hasSupport(int cell) {
+        if (cell == root) {
+            return true;
+        }
+        int cx = cell / height, cy = cell - cx * height;
+        for (int d = 0; d < 4; d++) {
+            int w = neighbour(cx, cy, d);
+            if (w >= 0 && invalidIn[w] != repair && distance[w] == distance[cell] - 1 && !isBlocked(w)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void seed(int cell) {
+        if (cell == root || isBlocked(cell)) {
+            return;
+        }
+        int cx = cell / height, cy = cell - cx * height;
+        int best = distance[cell];
+        for (int d = 0; d < 4; d++) {
+            int w = neighbour(cx, cy, d);
+            if (w >= 0 && distance[w] != UNREACHABLE && distance[w] + 1 < best && !isBlocked(w)) {
+                best = distance[w] + 1;
+            }
+        }
+        if (best < distance[cell]) {
+            distance[cell] = best;
+            open.insert(cell, best);
+        }
+    }
+
+    private void propagate() {
+        while (!open.isEmpty()) {
+            int v = open.poll();
+            int next = distance[v] + 1;
+            int vx = v / height, vy = v - vx * height;
+            for (int d = 0; d < 4; d++) {
+                int u = neighbour(vx, vy, d);
+                if (u >= 0 && next < distance[u] && u != root && !isBlocked(u)) {
+                    distance[u] = next;
+                    open.insert(u, next);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the first neighbour, in the order W, N, S, E, one move closer to the root
+     */
+    private int closerNeighbour(int cell) {
+        int cx = cell / height, cy = cell - cx * height;
+        for (int d = 0; d < 4; d++) {
+            int w = neighbour(cx, cy, d);
+            if (w >= 0 && distance[w] == distance[cell] - 1 && (w == root || !isBlocked(w))) {
+                return w;
+            }
+        }
+        throw new IllegalStateException("No neighbour closer to the root from cell " + cell);
+    }
+
+    /**
+     * @return cell index of neighbour d (W, N, S, E) of x,y, -1 if off the map
+     */
+    private int neighbour(int x, int y, int d) {
+        int xp = x + (d == 0 ? -1 : (d == 3 ? 1 : 0));
+        int yp = y + (d == 1 ? -1 : (d == 2 ? 1 : 0));
+        if (xp < 0 || yp < 0 || xp >= width || yp >= height) {
+            return -1;
+        }
+        return xp * height + yp;
+    }
+
+    private boolean isBlocked(int cell) {
+        return cell != root && memory.isCellBlocked(cell / height, cell % height, -1);
+    }
+}
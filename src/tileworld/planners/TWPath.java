@@ -5,7 +5,9 @@
 package tileworld.planners;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.NoSuchElementException;
 import tileworld.environment.TWDirection;
 
 /**
@@ -21,16 +23,34 @@ import tileworld.environment.TWDirection;
  *
  * A class to store a path which can be used to move the agent
  *
- * The path is a linked list of PathSteps, Each path step is and x,y coordinate and a direction.
+ * The path is kept compact: the cell of the next step plus the direction of
+ * every step packed in 2 bits, and a cursor over them. Paths are built by
+ * prepending from the target back to the start, so the directions are
+ * stored last step first. The accessors that hand out PathSteps (getpath,
+ * getStep, popNext, ...) turn the path into a linked list of PathSteps, each
+ * an x,y coordinate and a direction, as it was stored before.
  *
  */
 public class TWPath {
 
+    private static final TWDirection[] DIRECTIONS = TWDirection.values();
+
     /**
-     * The steps of the path.
+     * The steps of the path, null while the path is packed.
      */
     private LinkedList<TWPathStep> path;
 
+    /**
+     * Packed directions, 2 bits (TWDirection ordinal E, N, W or S) per step,
+     * the last step of the path first.
+     */
+    private long[] directions = new long[1];
+    /**
+     * Steps packed, steps already taken and the cell of the next step.
+     */
+    private int count, cursor;
+    private int nextX, nextY;
+
     /**
      * X and Y coordinate of the last path step added.
      */
@@ -39,14 +59,15 @@ public class TWPath {
     public TWPath(int targetx, int targety) {
         lastAddedX = targetx;
         lastAddedY = targety;
-        this.path = new LinkedList<TWPathStep>();
+        nextX = targetx;
+        nextY = targety;
     }
 
     /**
-     * @return the path
+     * @return the path, as a linked list of steps
      */
     public LinkedList<TWPathStep> getpath() {
-        return path;
+        return expand();
     }
 
     /**
@@ -62,6 +83,7 @@ public class TWPath {
      * @param startIndex
      */
     public void modifyPath(ArrayList<TWPathStep> pathSubSet, int startIndex) {
+        expand();
         for (int i = 0; i < pathSubSet.size(); i++) {
             path.set(i+startIndex, pathSubSet.get(i));
         }
@@ -74,7 +96,32 @@ public class TWPath {
      * @return
      */
     public TWPathStep getStep(int index) {
-        return path.get(index);
+        return expand().get(index);
+    }
+
+    /**
+     * @return the direction of the step at index (0 is the next step), cheap while the path is packed
+     */
+    public TWDirection getDirection(int index) {
+        if (path != null) {
+            return path.get(index).getDirection();
+        }
+        int stored = count - 1 - cursor - index;
+        return DIRECTIONS[(int) (directions[stored >> 5] >>> ((stored & 31) << 1)) & 3];
+    }
+
+    /**
+     * @return x coordinate of the next step, only meaningful while hasNext
+     */
+    public int getNextX() {
+        return path == null ? nextX : path.peekFirst().getX();
+    }
+
+    /**
+     * @return y coordinate of the next step, only meaningful while hasNext
+     */
+    public int getNextY() {
+        return path == null ? nextY : path.peekFirst().getY();
     }
 
     private void updateLastAdded(int x, int y) {
@@ -83,13 +130,13 @@ public class TWPath {
     }
 
     public void appendStep(TWPathStep d) {
-        path.addLast(d);
+        expand().addLast(d);
         updateLastAdded(d.getX(), d.getY());
     }
 
     //do we need this??
     public void prependStep(TWPathStep d) {
-        path.addFirst(d);
+        expand().addFirst(d);
         updateLastAdded(d.getX(), d.getY());
 
     }
@@ -101,11 +148,35 @@ public class TWPath {
     //do we need this??
     //We are adding in reverse order so go from current x,y to last added to get direction
     public void prependStep(int x, int y) {
-
-        this.prependStep(new TWPathStep(x, y, this.getReverseDirection(this.lastAddedX, this.lastAddedY, x, y)));
+        TWDirection d = this.getReverseDirection(this.lastAddedX, this.lastAddedY, x, y);
+        // only whole moves from the start of an untouched path can be packed
+        if (path != null || cursor > 0 || Math.abs(lastAddedX - x) + Math.abs(lastAddedY - y) != 1) {
+            this.prependStep(new TWPathStep(x, y, d));
+            return;
+        }
+        if (count >> 5 == directions.length) {
+            directions = Arrays.copyOf(directions, directions.length * 2);
+        }
+        directions[count >> 5] |= (long) d.ordinal() << ((count & 31) << 1);
+        count++;
+        nextX = x;
+        nextY = y;
+        updateLastAdded(x, y);
     }
 
     public boolean contains(int x, int y) {
+        if (path == null) {
+            int cx = nextX, cy = nextY;
+            for (int i = cursor; i < count; i++) {
+                if (cx == x && cy == y) {
+                    return true;
+                }
+                TWDirection d = getDirection(i - cursor);
+                cx += d.dx;
+                cy += d.dy;
+            }
+            return false;
+        }
         for (TWPathStep step : path) {
             if (step.getX() == x && step.getY() == y) {
                 return true;
@@ -161,15 +232,57 @@ public class TWPath {
      * @return
      */
     public TWPathStep popNext() {
+        if (path == null) {
+            TWPathStep step = new TWPathStep(nextX, nextY, getDirection(0));
+            nextDirection();
+            return step;
+        }
         return this.path.pop();
     }
 
+    /**
+     * Used for executing the path without making a step, removes the first
+     * step and returns its direction.
+     * @return
+     */
+    public TWDirection nextDirection() {
+        if (path != null) {
+            return this.path.pop().getDirection();
+        }
+        if (cursor == count) {
+            throw new NoSuchElementException();
+        }
+        TWDirection d = getDirection(0);
+        cursor++;
+        nextX += d.dx;
+        nextY += d.dy;
+        return d;
+    }
+
     public boolean hasNext() {
-        return this.path.peekFirst() != null;
+        return path == null ? cursor < count : this.path.peekFirst() != null;
     }
     
     public int size()
     {
-    	return path.size();
+    	return path == null ? count - cursor : path.size();
+    }
+
+    /**
+     * Turns the packed steps still ahead into the linked list of steps.
+     */
+    private LinkedList<TWPathStep> expand() {
+        if (path == null) {
+            LinkedList<TWPathStep> steps = new LinkedList<TWPathStep>();
+            int x = nextX, y = nextY;
+            for (int i = 0; i < count - cursor; i++) {
+                TWDirection d = getDirection(i);
+                steps.addLast(new TWPathStep(x, y, d));
+                x += d.dx;
+                y += d.dy;
+            }
+            path = steps;
+        }
+        return path;
     }
 }
@@ -0,0 +1,150 @@
+package tileworld.planners;
+
+import tileworld.agent.TWAgentWorkingMemory;
+import tileworld.environment.TWDirection;
+import tileworld.environment.TWEnvironment;
+import tileworld.environment.TWProfiler;
+
+/**
+ * TWPathCache
+ *
+ * Description: The last path found to each target cell, for one agent. As
+ * long as the agent walks along a cached path and the remembered obstacles
+ * around it stay put, the rest of that path is still a shortest path, so
+ * it can be handed back instead of searching again.
+ *
+ * An entry is keyed by its target and the decay it was searched with. It
+ * records the sum of the obstacle versions (TWAgentWorkingMemory
+ * getRegionVersion) of the regions covering the path's bounding box; any
+ * obstacle appearing or going there drops the entry. The cells still ahead
+ * are also checked against isCellBlocked with the entry's decay, which
+ * catches obstacles seen again after they had aged past it. Obstacles that
+ * age past the decay raise no event, so a cached path can be a little
+ * longer than a fresh search would find while they do.
+ *
+ * Hits and misses are counted in the environment's TWProfiler.
+ */
+public class TWPathCache {
+
+    private TWEnvironment map;
+    private TWAgentWorkingMemory memory;
+    /** Height of the map, cell index is x * height + y */
+    private int height;
+    /** Cells of the cached path to each target, start first and target last, reused by later paths */
+    private int[][] cellsOf;
+    /** Number of cells in use in cellsOf, 0 if nothing is cached */
+    private int[] lengthOf;
+    private int[] decayOf;
+    /** Where on the path the agent was found last time, the search for it starts there */
+    private int[] offsetOf;
+    /** Bounding box of the path in regions, and the sum of their versions when cached */
+    private int[] regionsOf;
+    private long[] versionsOf;
+
+    public TWPathCache(TWEnvironment map, TWAgentWorkingMemory memory) {
+        this.map = map;
+        this.memory = memory;
+        this.height = map.getyDimension();
+        int cells = map.getxDimension() * height;
+        cellsOf = new int[cells][];
+        lengthOf = new int[cells];
+        decayOf = new int[cells];
+        offsetOf = new int[cells];
+        regionsOf = new int[cells * 4];
+        versionsOf = new long[cells];
+    }
+
+    /**
+     * @return the rest of the cached path to tx,ty if x,y is on it and it is
+     * still valid, otherwise null
+     */
+    public TWPath get(int x, int y, int tx, int ty, int decay) {
+        int target = tx * height + ty;
+        TWPath path = lookup(x * height + y, target, decay);
+        map.getProfiler().count(path == null ? TWProfiler.Counter.PATH_CACHE_MISSES : TWProfiler.Counter.PATH_CACHE_HITS);
+        return path;
+    }
+
+    private TWPath lookup(int cell, int target, int decay) {
+        int[] cells = cellsOf[target];
+        if (lengthOf[target] == 0 || decayOf[target] != decay) {
+            return null;
+        }
+        // the agent moves at most one cell a step, so it is where it was or one further
+        int at = offsetOf[target];
+        int last = lengthOf[target] - 1;
+        if (cells[at] != cell) {
+            at++;
+            if (at >= last || cells[at] != cell) {
+                return null;
+            }
+        }
+        if (versions(target) != versionsOf[target]) {
+            lengthOf[target] = 0;
+            return null;
+        }
+        for (int i = at + 1; i <= last; i++) {
+            if (memory.isCellBlocked(cells[i] / height, cells[i] % height, decay)) {
+                lengthOf[target] = 0;
+                return null;
+            }
+        }
+        offsetOf[target] = at;
+        TWPath path = new TWPath(target / height, target % height);
+        for (int i = last - 1; i >= at; i--) {
+            path.prependStep(cells[i] / height, cells[i] % height);
+        }
+        return path;
+    }
+
+    /**
+     * Caches path (as returned by FloodPathGenerator or AstarPathGenerator)
+     * as the path to tx,ty searched with decay, null forgets it.
+     */
+    public void put(int tx, int ty, int decay, TWPath path) {
+        int target = tx * height + ty;
+        if (path == null) {
+            lengthOf[target] = 0;
+            return;
+        }
+        int[] cells = cellsOf[target];
+        if (cells == null || cells.length < path.size() + 1) {
+            cells = new int[path.size() + 1];
+        }
+        int n = 0;
+        int minX = tx, maxX = tx, minY = ty, maxY = ty;
+        int x = path.getNextX(), y = path.getNextY();
+        for (int i = 0; i < path.size(); i++) {
+            cells[n++] = x * height + y;
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+            TWDirection d = path.getDirection(i);
+            x += d.dx;
+            y += d.dy;
+        }
+        cells[n] = target;
+        cellsOf[target] = cells;
+        lengthOf[target] = n + 1;
+        decayOf[target] = decay;
+        offsetOf[target] = 0;
+        int r = target * 4;
+        regionsOf[r] = minX / TWAgentWorkingMemory.REGION_SIZE;
+        regionsOf[r + 1] = minY / TWAgentWorkingMemory.REGION_SIZE;
+        regionsOf[r + 2] = maxX / TWAgentWorkingMemory.REGION_SIZE;
+        regionsOf[r + 3] = maxY / TWAgentWorkingMemory.REGION_SIZE;
+        versionsOf[target] = versions(target);
+    }
+
+    private long versions(int target) {
+        int r = target * 4;
+        long sum = 0;
+        for (int rx = regionsOf[r]; rx <= regionsOf[r + 2]; rx++) {
+            for (int ry = regionsOf[r + 1]; ry <= regionsOf[r + 3]; ry++) {
+                sum += memory.getRegionVersion(rx, ry);
+            }
+        }
+        return sum;
+    }
+}
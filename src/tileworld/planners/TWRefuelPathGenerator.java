@@ -4,11 +4,16 @@ import tileworld.agent.SimpleTWAgent;
 import tileworld.agent.TWAgent;
 import tileworld.agent.UtilityAgent2;
 import tileworld.environment.TWEnvironment;
+import tileworld.environment.TWFuelStation;
 
 
 /**
  * find an a* path to the 0,0. If there is no path, find it to the next nearest tiles, 
  * if there is no path, find it to the next nearest tiles, and so on... 
+ * 
+ * The path to the station itself is read off a TWDistanceField kept by this
+ * generator, the A* level search is only used when the station is walled in
+ * or too far for the fuel left.
  */
 
 public class TWRefuelPathGenerator
@@ -16,16 +21,33 @@ public class TWRefuelPathGenerator
 	private AstarPathGenerator astarObject;
 	private TWEnvironment environment;
 	private UtilityAgent2 agent;
+	private TWDistanceField stationDistance;
 	
 	public TWRefuelPathGenerator(UtilityAgent2 utilityAgent2)
 	{
 		this.agent = utilityAgent2;
 		this.astarObject = new AstarPathGenerator(this.agent.getEnvironment(), this.agent, Integer.MAX_VALUE);
 		this.environment = utilityAgent2.getEnvironment();
+		this.stationDistance = new TWDistanceField(environment, agent.getMemory());
 	} 
 	
+	/**
+	 * @return moves from x,y to the fuel station around remembered obstacles, TWDistanceField.UNREACHABLE if walled in
+	 */
+	public int getStationDistance(int x, int y){
+		TWFuelStation station = environment.getFuelingStation();
+		stationDistance.setRoot(station.getX(), station.getY());
+		return stationDistance.distance(x, y);
+	}
+	
 	public TWPath generateRefuelPath(){
 		
+		int distance = getStationDistance(agent.getX(), agent.getY());
+		if(distance == 0)
+			return null;
+		if(distance <= agent.getFuelLevel())
+			return stationDistance.getPath(agent.getX(), agent.getY());
+		
 		int rows = environment.getxDimension() -1;
 		int columns = environment.getyDimension() -1;
 		int levels = rows + columns - 1; 
@@ -59,7 +81,7 @@ public class TWRefuelPathGenerator
 				pathToReturn = astarObject.findPath(agent.getX(), agent.getY(), x, y, -1);
 				if(pathToReturn != null)
 				{
-					double distance1 = pathToReturn.getpath().size();
+					double distance1 = pathToReturn.size();
 					double distance2 = environment.getDistance(x, y, 0, 0);
 					if (distance1 + distance2 <= agent.getFuelLevel())
 					{